@@ -1,4 +1,5 @@
 -- Active: 1720705173932@@127.0.0.1@54321@db_spring_test_api
+-- The application schema is created and migrated by Flyway from src/main/resources/db/migration.
 CREATE USER spring_test;
 
 Create DATABASE db_spring_test_api;
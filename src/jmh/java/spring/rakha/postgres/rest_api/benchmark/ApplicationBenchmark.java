@@ -0,0 +1,50 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import spring.rakha.postgres.rest_api.Application;
+
+/**
+ * Base for benchmarks that need the real application context, running against the
+ * database configured in {@code application.properties}, the same one the tests use.
+ * Subclasses start and stop the context from their own trial-level setup and teardown.
+ */
+public abstract class ApplicationBenchmark {
+
+    protected ConfigurableApplicationContext context;
+
+    protected void startApplication() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--logging.level.root=WARN");
+    }
+
+    /**
+     * Starts the application with its embedded server on a random port, see {@link #port()}.
+     */
+    protected void startServer(String... args) {
+        String[] arguments = new String[args.length + 2];
+        arguments[0] = "--logging.level.root=WARN";
+        arguments[1] = "--server.port=0";
+        System.arraycopy(args, 0, arguments, 2, args.length);
+
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.SERVLET)
+                .logStartupInfo(false)
+                .run(arguments);
+    }
+
+    protected int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    protected void stopApplication() {
+        context.close();
+    }
+
+    protected <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,42 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import spring.rakha.postgres.rest_api.security.BCrypt;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BCrypt#hashpw} and {@link BCrypt#checkpw} across the supported cost range. Run with
+ * {@code -prof gc} to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    @Param({"4", "6", "8", "10", "12"})
+    private int logRounds;
+
+    private String salt;
+
+    private String hashed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        salt = BCrypt.gensalt(logRounds);
+        hashed = BCrypt.hashpw("rahasia", salt);
+    }
+
+    @Benchmark
+    public String hashpw() {
+        return BCrypt.hashpw("rahasia", salt);
+    }
+
+    @Benchmark
+    public boolean checkpw() {
+        return BCrypt.checkpw("rahasia", hashed);
+    }
+}
@@ -0,0 +1,122 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import jakarta.persistence.criteria.Predicate;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import spring.rakha.postgres.rest_api.entity.Contact;
+import spring.rakha.postgres.rest_api.model.ContactResponse;
+import spring.rakha.postgres.rest_api.model.SearchContactRequest;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
+import spring.rakha.postgres.rest_api.service.ContactService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of {@code GET /api/contacts} over {@code contacts} generated rows, with and without a
+ * name filter. {@code pageThenCount} is the repository's page query followed by a separate
+ * {@code count(*)}; {@code search} is {@link ContactService#search}, windowed when filtered and
+ * counting only past a full page otherwise; {@code searchWithoutTotals} passes {@code totals=false}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ContactCountBenchmark extends ApplicationBenchmark {
+
+    @Param("1000000")
+    private int contacts;
+
+    @Param({"", "7f3e"})
+    private String name;
+
+    @Param({"0", "50"})
+    private int page;
+
+    private ContactService contactService;
+
+    private ContactRepository contactRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        startApplication();
+        contactService = bean(ContactService.class);
+        contactRepository = bean(ContactRepository.class);
+        transactionTemplate = new TransactionTemplate(bean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        jdbcTemplate = bean(JdbcTemplate.class);
+
+        String token = UUID.randomUUID().toString();
+        Long userId = jdbcTemplate.queryForObject(
+                "insert into users (username, password, name) values (?, 'benchmark', 'Benchmark') returning id",
+                Long.class, "benchmark-" + token);
+        jdbcTemplate.update("""
+                insert into contacts (user_id, first_name, last_name, email, phone)
+                select ?, md5(i::text), md5((i * 7)::text), md5((i * 13)::text) || '@example.com', (i * 31)::text
+                from generate_series(1, ?) i
+                """, userId, contacts);
+        jdbcTemplate.execute("analyze contacts");
+
+        user = new UserPrincipal(userId, "benchmark-" + token, "Benchmark", token, System.currentTimeMillis() + 10000000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("delete from contacts where user_id = ?", user.id());
+        jdbcTemplate.update("delete from users where id = ?", user.id());
+        stopApplication();
+    }
+
+    @Benchmark
+    public Page<Contact> pageThenCount() {
+        Specification<Contact> specification = (root, query, builder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(builder.equal(root.get("user").get("id"), user.id()));
+            if (!name.isEmpty()) {
+                predicates.add(builder.or(
+                        builder.like(builder.lower(root.get("firstName")), "%" + name + "%"),
+                        builder.like(builder.lower(root.get("lastName")), "%" + name + "%")
+                ));
+            }
+            return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
+        };
+
+        return transactionTemplate.execute(status -> contactRepository.findAll(specification, PageRequest.of(page, 10, Sort.by("id"))));
+    }
+
+    @Benchmark
+    public Page<ContactResponse> search() {
+        return contactService.search(user, request(null));
+    }
+
+    @Benchmark
+    public Page<ContactResponse> searchWithoutTotals() {
+        return contactService.search(user, request(false));
+    }
+
+    private SearchContactRequest request(Boolean totals) {
+        return SearchContactRequest.builder()
+                .name(name.isEmpty() ? null : name)
+                .page(page)
+                .size(10)
+                .totals(totals)
+                .build();
+    }
+}
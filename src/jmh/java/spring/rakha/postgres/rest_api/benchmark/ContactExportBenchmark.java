@@ -0,0 +1,107 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import spring.rakha.postgres.rest_api.model.ContactResponse;
+import spring.rakha.postgres.rest_api.model.SearchContactRequest;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
+import spring.rakha.postgres.rest_api.service.ContactCursor;
+import spring.rakha.postgres.rest_api.service.ContactService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a whole contact book of {@code contacts} rows: page/size search, keyset scroll
+ * and the NDJSON export. Run with {@code -prof gc} to compare allocation as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ContactExportBenchmark extends ApplicationBenchmark {
+
+    @Param("500000")
+    private int contacts;
+
+    @Param("1000")
+    private int pageSize;
+
+    private ContactService contactService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        startApplication();
+        contactService = bean(ContactService.class);
+        jdbcTemplate = bean(JdbcTemplate.class);
+
+        String token = UUID.randomUUID().toString();
+        Long userId = jdbcTemplate.queryForObject(
+                "insert into users (username, password, name) values (?, 'benchmark', 'Benchmark') returning id",
+                Long.class, "benchmark-" + token);
+        jdbcTemplate.update("""
+                insert into contacts (user_id, first_name, last_name, email, phone)
+                select ?, md5(i::text), md5((i * 7)::text), md5((i * 13)::text) || '@example.com', (i * 31)::text
+                from generate_series(1, ?) i
+                """, userId, contacts);
+        jdbcTemplate.execute("analyze contacts");
+
+        user = new UserPrincipal(userId, "benchmark-" + token, "Benchmark", token, System.currentTimeMillis() + 10000000L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("delete from contacts where user_id = ?", user.id());
+        jdbcTemplate.update("delete from users where id = ?", user.id());
+        stopApplication();
+    }
+
+    @Benchmark
+    public long pagedSearch() {
+        long read = 0;
+        Page<ContactResponse> page;
+        int number = 0;
+        do {
+            page = contactService.search(user, SearchContactRequest.builder()
+                    .page(number++)
+                    .size(pageSize)
+                    .build());
+            read += page.getNumberOfElements();
+        } while (page.hasNext());
+        return read;
+    }
+
+    @Benchmark
+    public long cursorScroll() {
+        long read = 0;
+        String after = "";
+        Window<ContactResponse> window;
+        do {
+            window = contactService.scroll(user, SearchContactRequest.builder()
+                    .page(0)
+                    .size(pageSize)
+                    .after(after)
+                    .build());
+            read += window.size();
+            if (window.hasNext()) {
+                after = ContactCursor.encode(window.positionAt(window.size() - 1));
+            }
+        } while (window.hasNext());
+        return read;
+    }
+
+    @Benchmark
+    public void ndjsonExport() throws IOException {
+        contactService.export(user, false, OutputStream.nullOutputStream());
+    }
+}
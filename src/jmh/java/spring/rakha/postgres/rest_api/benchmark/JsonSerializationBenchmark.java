@@ -0,0 +1,98 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FastByteArrayOutputStream;
+import spring.rakha.postgres.rest_api.model.AddressResponse;
+import spring.rakha.postgres.rest_api.model.ContactResponse;
+import spring.rakha.postgres.rest_api.model.PagingResponse;
+import spring.rakha.postgres.rest_api.model.WebResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writing one {@code GET /api/contacts?include=addresses} page of {@code pageSize} contacts with
+ * two addresses each. {@code reflection} is a plain mapper, {@code blackbird} the mapper the
+ * application uses, {@code blackbirdGzip} adds the compression Tomcat applies on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param("100")
+    private int pageSize;
+
+    private ObjectMapper reflectionMapper;
+
+    private ObjectMapper blackbirdMapper;
+
+    private WebResponse<List<ContactResponse>> page;
+
+    private FastByteArrayOutputStream buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        reflectionMapper = JsonMapper.builder().build();
+        blackbirdMapper = JsonMapper.builder().addModule(new BlackbirdModule()).build();
+
+        List<ContactResponse> contacts = IntStream.range(0, pageSize)
+                .mapToObj(i -> ContactResponse.builder()
+                        .id((long) i)
+                        .firstName("First Name " + i)
+                        .lastName("Last Name " + i)
+                        .email("contact" + i + "@example.com")
+                        .phone("0821" + (1000000 + i))
+                        .addresses(List.of(address(i, "Jakarta"), address(i, "Bandung")))
+                        .build())
+                .toList();
+        page = WebResponse.<List<ContactResponse>>builder()
+                .data(contacts)
+                .paging(PagingResponse.builder().currentPage(0).totalPage(10).size(pageSize).hasNext(true).build())
+                .build();
+        buffer = new FastByteArrayOutputStream(64 * 1024);
+    }
+
+    @Benchmark
+    public int reflection() throws IOException {
+        buffer.reset();
+        reflectionMapper.writeValue(buffer, page);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int blackbird() throws IOException {
+        buffer.reset();
+        blackbirdMapper.writeValue(buffer, page);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int blackbirdGzip() throws IOException {
+        buffer.reset();
+        try (OutputStream gzip = new GZIPOutputStream(buffer, 8192)) {
+            blackbirdMapper.writeValue(gzip, page);
+        }
+        return buffer.size();
+    }
+
+    private static AddressResponse address(int i, String city) {
+        return AddressResponse.builder()
+                .street("Jalan " + i)
+                .city(city)
+                .province("Jawa")
+                .country("Indonesia")
+                .postalCode(String.valueOf(40000 + i))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The whole servlet stack over HTTP with {@code concurrency} requests in flight, on
+ * platform Tomcat workers and on virtual threads ({@code spring.threads.virtual.enabled}).
+ * Each operation is one burst: a mix of contact searches, which need a pooled connection,
+ * and current-user reads served from the token cache. Responses are counted as ok, 503 (no
+ * pooled connection within the Hikari timeout) or failed; carrier pinning, if any, is
+ * printed by {@code jdk.tracePinnedThreads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class ServerLoadBenchmark extends ApplicationBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param("400")
+    private int concurrency;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient client;
+
+    private Long userId;
+
+    private HttpRequest search;
+
+    private HttpRequest currentUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        startServer("--spring.threads.virtual.enabled=" + virtualThreads);
+        jdbcTemplate = bean(JdbcTemplate.class);
+
+        String token = UUID.randomUUID().toString();
+        userId = jdbcTemplate.queryForObject(
+                "insert into users (username, password, name) values (?, 'benchmark', 'Benchmark') returning id",
+                Long.class, "benchmark-" + token);
+        jdbcTemplate.update("insert into sessions (user_id, token_hash, expired_at) values (?, sha256(convert_to(?, 'UTF8')), ?)",
+                userId, token, System.currentTimeMillis() + 10000000L);
+        jdbcTemplate.update("""
+                insert into contacts (user_id, first_name, last_name, email, phone)
+                select ?, md5(i::text), md5((i * 7)::text), md5((i * 13)::text) || '@example.com', (i * 31)::text
+                from generate_series(1, 10000) i
+                """, userId);
+        jdbcTemplate.execute("analyze contacts");
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        String base = "http://localhost:" + port();
+        search = HttpRequest.newBuilder(URI.create(base + "/api/contacts?name=7f&size=10"))
+                .header("X-API-TOKEN", token)
+                .header("Accept", "application/json")
+                .build();
+        currentUser = HttpRequest.newBuilder(URI.create(base + "/api/users/current"))
+                .header("X-API-TOKEN", token)
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        clientExecutor.shutdownNow();
+        jdbcTemplate.update("delete from contacts where user_id = ?", userId);
+        jdbcTemplate.update("delete from users where id = ?", userId);
+        stopApplication();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+
+        public long ok;
+
+        public long unavailable;
+
+        public long failed;
+    }
+
+    @Benchmark
+    public void burst(Responses counters) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = i % 2 == 0 ? search : currentUser;
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            switch (response.join().statusCode()) {
+                case 200 -> counters.ok++;
+                case 503 -> counters.unavailable++;
+                default -> counters.failed++;
+            }
+        }
+    }
+}
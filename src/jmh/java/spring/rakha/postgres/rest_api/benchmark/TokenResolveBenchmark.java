@@ -0,0 +1,92 @@
+package spring.rakha.postgres.rest_api.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.resolver.UserArgumentResolver;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.security.TokenSigner;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating one request: {@code resolveUncached} pays the
+ * session lookup round trip every time, {@code resolveCached} is served by
+ * {@link TokenCache} and {@code resolveSigned} verifies a {@link TokenSigner} token's HMAC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenResolveBenchmark extends ApplicationBenchmark {
+
+    private UserArgumentResolver resolver;
+
+    private TokenCache tokenCache;
+
+    private NativeWebRequest request;
+
+    private NativeWebRequest signedRequest;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        startApplication();
+        resolver = bean(UserArgumentResolver.class);
+        tokenCache = bean(TokenCache.class);
+
+        String token = UUID.randomUUID().toString();
+        user = new User();
+        user.setUsername("benchmark-" + token);
+        user.setPassword("benchmark");
+        user.setName("Benchmark");
+        bean(UserRepository.class).save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash(token));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        bean(UserSessionRepository.class).save(session);
+
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        servletRequest.addHeader("X-API-TOKEN", token);
+        request = new ServletWebRequest(servletRequest);
+
+        MockHttpServletRequest signedServletRequest = new MockHttpServletRequest();
+        signedServletRequest.addHeader("X-API-TOKEN",
+                bean(TokenSigner.class).sign(user.getId(), user.getUsername(), session.getExpiredAt()));
+        signedRequest = new ServletWebRequest(signedServletRequest);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bean(UserRepository.class).delete(user);
+        stopApplication();
+    }
+
+    @Benchmark
+    public Object resolveCached() throws Exception {
+        return resolver.resolveArgument(null, null, request, null);
+    }
+
+    @Benchmark
+    public Object resolveUncached() throws Exception {
+        tokenCache.clear();
+        return resolver.resolveArgument(null, null, request, null);
+    }
+
+    @Benchmark
+    public Object resolveSigned() throws Exception {
+        return resolver.resolveArgument(null, null, signedRequest, null);
+    }
+}
@@ -0,0 +1,42 @@
+package spring.rakha.postgres.rest_api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.FastByteArrayOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Serializes into a buffer first so the response carries a Content-Length. Tomcat only applies
+ * {@code server.compression.min-response-size} to responses of known length; a chunked body is
+ * gzipped however small it is. API responses are single pages, so buffering them is cheap.
+ */
+public class ContentLengthJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public ContentLengthJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        FastByteArrayOutputStream buffer = new FastByteArrayOutputStream();
+        super.writeInternal(object, type, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return buffer;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        });
+
+        outputMessage.getHeaders().setContentLength(buffer.size());
+        buffer.writeTo(outputMessage.getBody());
+    }
+}
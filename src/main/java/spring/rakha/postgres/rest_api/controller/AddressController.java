@@ -3,13 +3,15 @@ package spring.rakha.postgres.rest_api.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import spring.rakha.postgres.rest_api.entity.User;
+import org.springframework.web.context.request.WebRequest;
 import spring.rakha.postgres.rest_api.model.AddressResponse;
 import spring.rakha.postgres.rest_api.model.CreateAddressRequest;
 import spring.rakha.postgres.rest_api.model.WebResponse;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 import spring.rakha.postgres.rest_api.service.AddressService;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 public class AddressController {
@@ -23,7 +25,7 @@ public class AddressController {
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<AddressResponse> create(User user, @RequestBody CreateAddressRequest request, @PathVariable("contactId") Integer contactId) {
+    public WebResponse<AddressResponse> create(UserPrincipal user, @RequestBody CreateAddressRequest request, @PathVariable("contactId") Integer contactId) {
         AddressResponse addressResponse = addressService.create(user, contactId, request);
 
         return WebResponse.<AddressResponse>builder().data(addressResponse).build();
@@ -33,9 +35,14 @@ public class AddressController {
             path = "/api/contacts/{contactId}/addresses/{addressId}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<AddressResponse> get(User user,
+    public WebResponse<AddressResponse> get(UserPrincipal user,
                                             @PathVariable("contactId") Integer contactId,
-                                            @PathVariable("addressId") Integer addressId){
+                                            @PathVariable("addressId") Integer addressId,
+                                            WebRequest request){
+        if (request.checkNotModified(String.valueOf(addressService.version(user, contactId, addressId)))) {
+            return null;
+        }
+
         AddressResponse addressResponse = addressService.get(user, contactId, addressId);
 
         return WebResponse.<AddressResponse>builder().data(addressResponse).build();
@@ -46,7 +53,7 @@ public class AddressController {
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public  WebResponse<AddressResponse> update(User user,
+    public  WebResponse<AddressResponse> update(UserPrincipal user,
                                              @PathVariable("contactId") Integer contactId,
                                              @PathVariable("addressId") Integer addressId,
                                              @RequestBody CreateAddressRequest request) {
@@ -59,7 +66,7 @@ public class AddressController {
             path = "/api/contacts/{contactId}/addresses/{addressId}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(User user,
+    public WebResponse<String> delete(UserPrincipal user,
                                       @PathVariable("contactId") Integer contactId,
                                       @PathVariable("addressId") Integer addressId) {
         addressService.delete(user, contactId, addressId);
@@ -67,13 +74,29 @@ public class AddressController {
         return WebResponse.<String>builder().data("Ok").build();
     }
 
+    @GetMapping(
+            path = "/api/addresses",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<Map<Long, List<AddressResponse>>> list(UserPrincipal user,
+                                                             @RequestParam("contactIds") List<Long> contactIds) {
+        Map<Long, List<AddressResponse>> addresses = addressService.list(user, contactIds);
+
+        return WebResponse.<Map<Long, List<AddressResponse>>>builder().data(addresses).build();
+    }
+
     @GetMapping(
             path = "/api/contacts/{contactId}/addresses",
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<AddressResponse>> list(User user,
-                                                   @PathVariable("contactId") Integer contactId) {
+    public WebResponse<List<AddressResponse>> list(UserPrincipal user,
+                                                   @PathVariable("contactId") Integer contactId,
+                                                   WebRequest request) {
+        if (request.checkNotModified(addressService.listVersion(user, contactId))) {
+            return null;
+        }
+
         List<AddressResponse> addressResponseList = addressService.list(user, contactId);
 
         return WebResponse.<List<AddressResponse>>builder().data(addressResponseList).build();
@@ -1,15 +1,16 @@
 package spring.rakha.postgres.rest_api.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
-import spring.rakha.postgres.rest_api.entity.User;
 import spring.rakha.postgres.rest_api.model.LoginUserRequest;
 import spring.rakha.postgres.rest_api.model.TokenResponse;
 import spring.rakha.postgres.rest_api.model.WebResponse;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 import spring.rakha.postgres.rest_api.service.AuthService;
 
 import javax.print.attribute.standard.Media;
@@ -26,8 +27,8 @@ public class AuthController {
             produces = MediaType.APPLICATION_JSON_VALUE
     )
 
-    public WebResponse<TokenResponse> login(@RequestBody LoginUserRequest request){
-        TokenResponse tokenResponse = authService.login(request);
+    public WebResponse<TokenResponse> login(@RequestBody LoginUserRequest request, HttpServletRequest servletRequest){
+        TokenResponse tokenResponse = authService.login(request, servletRequest.getRemoteAddr());
         return WebResponse.<TokenResponse>builder().data(tokenResponse).build();
     }
 
@@ -35,7 +36,7 @@ public class AuthController {
             path = "/api/auth/logout",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> logout(User user){
+    public WebResponse<String> logout(UserPrincipal user){
         authService.logout(user);
 
         return WebResponse.<String>builder().data("OK").build();
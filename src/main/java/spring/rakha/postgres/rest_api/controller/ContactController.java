@@ -1,14 +1,21 @@
 package spring.rakha.postgres.rest_api.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import spring.rakha.postgres.rest_api.entity.User;
+import org.springframework.web.context.request.WebRequest;
 import spring.rakha.postgres.rest_api.model.*;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
+import spring.rakha.postgres.rest_api.service.ContactCursor;
 import spring.rakha.postgres.rest_api.service.ContactService;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
 
 @RestController
 public class ContactController {
@@ -21,29 +28,55 @@ public class ContactController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ContactResponse> create(User user, @RequestBody CreateContactRequest request) {
+    public WebResponse<ContactResponse> create(UserPrincipal user, @RequestBody CreateContactRequest request) {
         ContactResponse responses = contactService.create(user, request);
 
         return WebResponse.<ContactResponse>builder().data(responses).build();
     }
 
+    @PostMapping(
+            path = "/api/contacts/import",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson", "text/csv"},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public WebResponse<ImportContactResponse> importContacts(UserPrincipal user, HttpServletRequest request) throws IOException {
+        ImportContactResponse response = contactService.importContacts(user, request.getContentType(), request.getInputStream());
+
+        return WebResponse.<ImportContactResponse>builder().data(response).build();
+    }
+
     @GetMapping(
             path = "/api/contacts/{contactId}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<ContactResponse> get(User user, @PathVariable("contactId") Integer id){
+    public WebResponse<ContactResponse> get(UserPrincipal user, @PathVariable("contactId") Integer id, WebRequest request){
+        if (request.checkNotModified(String.valueOf(contactService.version(user, id)))) {
+            return null;
+        }
+
         ContactResponse response = contactService.get(user, id);
 
         return WebResponse.<ContactResponse>builder().data(response).build();
 
     }
 
+    @GetMapping(
+            path = "/api/contacts/export",
+            produces = "application/x-ndjson"
+    )
+    public void export(UserPrincipal user,
+                       @RequestParam(value = "include", required = false) String include,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        contactService.export(user, "addresses".equals(include), response.getOutputStream());
+    }
+
     @PutMapping(
             path = "/api/contacts/{contactId}",
             produces = MediaType.APPLICATION_JSON_VALUE,
             consumes = MediaType.APPLICATION_JSON_VALUE
     )
-    public  WebResponse<ContactResponse> update(User user, @RequestBody CreateContactRequest request, @PathVariable("contactId") Integer id) {
+    public  WebResponse<ContactResponse> update(UserPrincipal user, @RequestBody CreateContactRequest request, @PathVariable("contactId") Integer id) {
         ContactResponse contactResponse = contactService.update(user, request, id);
 
         return WebResponse.<ContactResponse>builder().data(contactResponse).build();
@@ -53,7 +86,7 @@ public class ContactController {
             path = "/api/contacts/{contactId}",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<String> delete(User user, @PathVariable("contactId") Integer id){
+    public WebResponse<String> delete(UserPrincipal user, @PathVariable("contactId") Integer id){
         contactService.delete(user, id);
 
         return WebResponse.<String>builder().data("OK").build();
@@ -63,28 +96,58 @@ public class ContactController {
             path = "/api/contacts",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<List<ContactResponse>> search(User user,
+    public WebResponse<List<ContactResponse>> search(UserPrincipal user,
                                                      @RequestParam(value = "name", required = false) String name,
                                                      @RequestParam(value = "email", required = false) String email,
                                                      @RequestParam(value = "phone", required = false) String phone,
                                                      @RequestParam(value = "page", required = false, defaultValue = "0") Integer page,
-                                                     @RequestParam(value = "size", required = false, defaultValue = "10") Integer size){
+                                                     @RequestParam(value = "size", required = false, defaultValue = "10") Integer size,
+                                                     @RequestParam(value = "after", required = false) String after,
+                                                     @RequestParam(value = "include", required = false) String include,
+                                                     @RequestParam(value = "totals", required = false) Boolean totals){
         SearchContactRequest request = SearchContactRequest.builder()
                 .page(page)
                 .size(size)
                 .name(name)
                 .email(email)
                 .phone(phone)
+                .after(after)
+                .includeAddresses("addresses".equals(include))
+                .totals(totals)
                 .build();
 
+        if (Objects.nonNull(after)) {
+            return scroll(user, request, totals);
+        }
+
         Page<ContactResponse> contactResponses = contactService.search(user, request);
         return WebResponse.<List<ContactResponse>>builder()
                 .data(contactResponses.getContent())
                 .paging(PagingResponse.builder()
                         .currentPage(contactResponses.getNumber())
-                        .totalPage(contactResponses.getTotalPages())
+                        .totalPage(Boolean.FALSE.equals(totals) ? null : contactResponses.getTotalPages())
                         .size(contactResponses.getSize())
+                        .hasNext(contactResponses.hasNext())
                         .build())
                 .build();
     }
+
+    private WebResponse<List<ContactResponse>> scroll(UserPrincipal user, SearchContactRequest request, Boolean totals) {
+        Window<ContactResponse> contactResponses = contactService.scroll(user, request);
+
+        PagingResponse.PagingResponseBuilder paging = PagingResponse.builder()
+                .size(request.getSize());
+        if (contactResponses.hasNext()) {
+            paging.after(ContactCursor.encode(contactResponses.positionAt(contactResponses.size() - 1)));
+        }
+        if (Boolean.TRUE.equals(totals)) {
+            long total = contactService.count(user, request);
+            paging.totalPage((int) ((total + request.getSize() - 1) / request.getSize()));
+        }
+
+        return WebResponse.<List<ContactResponse>>builder()
+                .data(contactResponses.getContent())
+                .paging(paging.build())
+                .build();
+    }
 }
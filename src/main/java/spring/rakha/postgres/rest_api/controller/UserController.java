@@ -3,11 +3,11 @@ package spring.rakha.postgres.rest_api.controller;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
-import spring.rakha.postgres.rest_api.entity.User;
 import spring.rakha.postgres.rest_api.model.RegisterUserRequest;
 import spring.rakha.postgres.rest_api.model.UpdateUserRequest;
 import spring.rakha.postgres.rest_api.model.UserResponse;
 import spring.rakha.postgres.rest_api.model.WebResponse;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 import spring.rakha.postgres.rest_api.service.UserService;
 
 import javax.print.attribute.standard.Media;
@@ -33,7 +33,7 @@ public class UserController {
             path = "/api/users/current",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<UserResponse> get(User user) {
+    public WebResponse<UserResponse> get(UserPrincipal user) {
         UserResponse userResponse = userService.get(user);
         return WebResponse.<UserResponse>builder().data(userResponse).build();
 
@@ -44,7 +44,7 @@ public class UserController {
             consumes = MediaType.APPLICATION_JSON_VALUE,
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public WebResponse<UserResponse> update(User user, @RequestBody UpdateUserRequest request) {
+    public WebResponse<UserResponse> update(UserPrincipal user, @RequestBody UpdateUserRequest request) {
         UserResponse userResponse = userService.update(user, request);
         return WebResponse.<UserResponse>builder().data(userResponse).build();
     }
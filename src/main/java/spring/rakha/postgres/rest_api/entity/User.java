@@ -27,11 +27,6 @@ public class User {
 
     private String name;
 
-    private String token;
-
-    @Column(name = "token_expired_at")
-    private Long tokenExpiredAt;
-
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user")
     private List<Contact> contacts;
 }
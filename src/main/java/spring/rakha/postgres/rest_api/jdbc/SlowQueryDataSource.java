@@ -0,0 +1,246 @@
+package spring.rakha.postgres.rest_api.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Times every statement executed through the wrapped pool and hands the slow ones to
+ * {@link SlowQueryLog}. A fast statement costs two {@code nanoTime} calls; only a slow query
+ * gets its result set wrapped, so that its rows can be counted as the caller reads them.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+
+    private static final Class<?>[] CONNECTION = {Connection.class};
+
+    private static final Class<?>[] STATEMENT = {Statement.class};
+
+    private static final Class<?>[] PREPARED_STATEMENT = {PreparedStatement.class};
+
+    private static final Class<?>[] CALLABLE_STATEMENT = {CallableStatement.class};
+
+    private static final Class<?>[] RESULT_SET = {ResultSet.class};
+
+    private static final Class<?>[] NO_PARAMETERS = {};
+
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryDataSource(DataSource targetDataSource, SlowQueryLog slowQueryLog) {
+        super(targetDataSource);
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(CONNECTION, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(CONNECTION, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?>[] interfaces, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), interfaces, handler);
+    }
+
+    private abstract static class DelegatingHandler implements InvocationHandler {
+
+        private final Object target;
+
+        DelegatingHandler(Object target) {
+            this.target = target;
+        }
+
+        Object delegate(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getCause();
+                    }
+            }
+        }
+    }
+
+    private final class ConnectionHandler extends DelegatingHandler {
+
+        ConnectionHandler(Connection connection) {
+            super(connection);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = delegate(proxy, method, args);
+            if (!(result instanceof Statement statement) || method.getName().equals("unwrap")) {
+                return result;
+            }
+
+            // prepareStatement / prepareCall carry their SQL, createStatement gets it per execute
+            String sql = Objects.nonNull(args) && args.length > 0 && args[0] instanceof String text ? text : null;
+            StatementHandler handler = new StatementHandler(statement, sql);
+            if (statement instanceof CallableStatement) {
+                return proxy(CALLABLE_STATEMENT, handler);
+            }
+            return proxy(statement instanceof PreparedStatement ? PREPARED_STATEMENT : STATEMENT, handler);
+        }
+    }
+
+    private final class StatementHandler extends DelegatingHandler {
+
+        private final Statement statement;
+
+        private final String sql;
+
+        private Class<?>[] parameters = NO_PARAMETERS;
+
+        private int parameterCount;
+
+        // a slow query whose rows are still being read
+        private SlowExecution pending;
+
+        StatementHandler(Statement statement, String sql) {
+            super(statement);
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch":
+                    return execute(proxy, method, args);
+                case "getResultSet":
+                    ResultSet resultSet = (ResultSet) delegate(proxy, method, args);
+                    return Objects.nonNull(pending) && Objects.nonNull(resultSet) ? countRows(resultSet) : resultSet;
+                case "close":
+                    flush();
+                    break;
+                case "clearParameters":
+                    parameterCount = 0;
+                    break;
+                default:
+                    if (Objects.nonNull(args) && args.length >= 2 && args[0] instanceof Integer index && name.startsWith("set")) {
+                        bind(index, name.equals("setNull") || Objects.isNull(args[1]) ? Void.class : args[1].getClass());
+                    }
+            }
+            return delegate(proxy, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            flush();
+
+            long start = System.nanoTime();
+            Object result = delegate(proxy, method, args);
+            long elapsed = System.nanoTime() - start;
+            if (!slowQueryLog.isSlow(elapsed)) {
+                return result;
+            }
+
+            String text = Objects.nonNull(sql) ? sql
+                    : Objects.nonNull(args) && args.length > 0 && args[0] instanceof String statementSql ? statementSql : "batch";
+            SlowExecution execution = new SlowExecution(text, SlowQueryLog.shape(parameters, parameterCount),
+                    elapsed, SlowQueryLog.endpoint());
+            switch (result) {
+                case ResultSet resultSet -> {
+                    pending = execution;
+                    return countRows(resultSet);
+                }
+                case Boolean hasResultSet when hasResultSet -> pending = execution;
+                case Boolean ignored -> execution.rows = statement.getUpdateCount();
+                case Number count -> execution.rows = count.longValue();
+                case int[] counts -> execution.rows = Arrays.stream(counts).asLongStream().sum();
+                case long[] counts -> execution.rows = Arrays.stream(counts).sum();
+                default -> {
+                }
+            }
+            if (pending != execution) {
+                execution.log();
+            }
+            return result;
+        }
+
+        private ResultSet countRows(ResultSet resultSet) {
+            SlowExecution execution = pending;
+            return proxy(RESULT_SET, new DelegatingHandler(resultSet) {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "next":
+                            Object next = delegate(proxy, method, args);
+                            if (Boolean.TRUE.equals(next)) {
+                                execution.rows++;
+                            }
+                            return next;
+                        case "close":
+                            if (pending == execution) {
+                                flush();
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    return delegate(proxy, method, args);
+                }
+            });
+        }
+
+        private void bind(int index, Class<?> type) {
+            if (index > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(8, index * 2));
+            }
+            parameters[index - 1] = type;
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        private void flush() {
+            if (Objects.nonNull(pending)) {
+                pending.log();
+                pending = null;
+            }
+        }
+    }
+
+    private final class SlowExecution {
+
+        private final String sql;
+
+        private final String parameters;
+
+        private final long elapsed;
+
+        private final String endpoint;
+
+        private long rows;
+
+        SlowExecution(String sql, String parameters, long elapsed, String endpoint) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.elapsed = elapsed;
+            this.endpoint = endpoint;
+        }
+
+        void log() {
+            slowQueryLog.log(sql, parameters, elapsed, rows, endpoint);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package spring.rakha.postgres.rest_api.jdbc;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application's {@link DataSource} in a {@link SlowQueryDataSource}, unless
+ * {@code app.slow-query.threshold} is negative.
+ */
+@Component
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor, EnvironmentAware {
+
+    private long threshold;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        threshold = environment.getProperty("app.slow-query.threshold", Long.class, 200L);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof SlowQueryDataSource) && threshold >= 0) {
+            return new SlowQueryDataSource(dataSource, new SlowQueryLog(threshold));
+        }
+        return bean;
+    }
+}
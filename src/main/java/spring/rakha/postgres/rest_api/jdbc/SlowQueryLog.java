@@ -0,0 +1,58 @@
+package spring.rakha.postgres.rest_api.jdbc;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one line per statement that took at least {@code app.slow-query.threshold}
+ * milliseconds. Bound values are never logged, only their types. The logger goes through an
+ * async appender (see {@code logback-spring.xml}), so the JDBC thread only formats the line.
+ */
+@Slf4j
+public class SlowQueryLog {
+
+    private final long thresholdNanos;
+
+    public SlowQueryLog(long thresholdMillis) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    void log(String sql, String parameters, long elapsedNanos, long rows, String endpoint) {
+        log.warn("duration_ms={} rows={} endpoint=\"{}\" params=\"{}\" sql=\"{}\"",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, endpoint, parameters, sql);
+    }
+
+    static String shape(Class<?>[] parameters, int count) {
+        StringBuilder shape = new StringBuilder(count * 8 + 2).append('(');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                shape.append(", ");
+            }
+            Class<?> type = parameters[i];
+            shape.append(Objects.isNull(type) ? "?" : type == Void.class ? "null" : type.getSimpleName());
+        }
+        return shape.append(')').toString();
+    }
+
+    static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return "-";
+        }
+
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (Objects.nonNull(pattern) ? pattern : request.getRequestURI());
+    }
+}
@@ -1,16 +1,21 @@
 package spring.rakha.postgres.rest_api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class ContactResponse {
 
+    private Long id;
+
     private String firstName;
 
     private String lastName;
@@ -18,4 +23,7 @@ public class ContactResponse {
     private String email;
 
     private String phone;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<AddressResponse> addresses;
 }
@@ -0,0 +1,19 @@
+package spring.rakha.postgres.rest_api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ImportContactResponse {
+
+    private Integer imported;
+
+    private List<ImportErrorResponse> errors;
+}
@@ -23,4 +23,11 @@ public class SearchContactRequest {
 
     @NotNull
     private Integer size;
+
+    private String after;
+
+    private boolean includeAddresses;
+
+    // null counts the matches as well, false skips counting them
+    private Boolean totals;
 }
@@ -1,18 +1,34 @@
 package spring.rakha.postgres.rest_api.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import spring.rakha.postgres.rest_api.entity.Address;
 import spring.rakha.postgres.rest_api.entity.Contact;
 import spring.rakha.postgres.rest_api.entity.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Repository
-public interface AddressRepository extends JpaRepository<Address, Integer> {
+public interface AddressRepository extends JpaRepository<Address, Long> {
 
-    Optional<Address> findFirstByContactAndId(Contact contact, Integer addressId);
+    // by primary key rather than a query, so that the read can be served from the second-level cache
+    default Optional<Address> findOwnedById(Contact contact, Integer addressId) {
+        return findById(addressId.longValue())
+                .filter(address -> Objects.equals(address.getContact().getId(), contact.getId()));
+    }
 
     List<Address> findAllByContact(Contact contact);
+
+    List<Address> findAllByContactIdIn(Collection<Long> contactIds);
+
+    // creating, updating or deleting any address of the contact changes at least one of the three
+    @Query("""
+            select concat(cast(count(a) as String), '-', cast(coalesce(max(a.id), 0) as String), '-', cast(coalesce(sum(a.version), 0) as String))
+            from Address a where a.contact.id = :contactId
+            """)
+    String findListVersionByContactId(Long contactId);
 }
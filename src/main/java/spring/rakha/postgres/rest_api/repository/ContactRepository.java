@@ -1,15 +1,38 @@
 package spring.rakha.postgres.rest_api.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import spring.rakha.postgres.rest_api.entity.Contact;
-import spring.rakha.postgres.rest_api.entity.User;
 
+import java.util.Collection;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ContactRepository extends JpaRepository<Contact, Integer> , JpaSpecificationExecutor<Contact> {
+public interface ContactRepository extends JpaRepository<Contact, Long> , JpaSpecificationExecutor<Contact> {
 
-    Optional<Contact> findFirstByUserAndId(User user, Integer id);
+    // by primary key rather than a query, so that the read can be served from the second-level cache
+    default Optional<Contact> findOwnedById(Long userId, Integer id) {
+        return findById(id.longValue())
+                .filter(contact -> Objects.equals(contact.getUser().getId(), userId));
+    }
+
+    long countByUserIdAndIdIn(Long userId, Collection<Long> ids);
+
+    @EntityGraph("Contact.address")
+    Optional<Contact> findWithAddressByUserIdAndId(Long userId, Integer id);
+
+    // a whole contact book would otherwise evict everyone's hot entries from the second-level cache
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Contact> streamAllByUserIdOrderById(Long userId);
 }
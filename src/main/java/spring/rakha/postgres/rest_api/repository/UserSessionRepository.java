@@ -0,0 +1,37 @@
+package spring.rakha.postgres.rest_api.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
+
+import java.util.Optional;
+
+@Repository
+public interface UserSessionRepository extends JpaRepository<UserSession, Long> {
+
+    default Optional<UserPrincipal> findPrincipalByToken(String token) {
+        return findPrincipalByTokenHash(token, TokenHasher.hash(token));
+    }
+
+    @Query("""
+            select new spring.rakha.postgres.rest_api.security.UserPrincipal(u.id, u.username, u.name, cast(:token as String), s.expiredAt)
+            from UserSession s join s.user u where s.tokenHash = :tokenHash
+            """)
+    Optional<UserPrincipal> findPrincipalByTokenHash(String token, byte[] tokenHash);
+
+    default int deleteByToken(String token) {
+        return deleteByTokenHash(TokenHasher.hash(token));
+    }
+
+    @Modifying
+    @Query("delete from UserSession s where s.tokenHash = :tokenHash")
+    int deleteByTokenHash(byte[] tokenHash);
+
+    @Modifying
+    @Query("delete from UserSession s where s.user.id = :userId and s.expiredAt < :now")
+    int deleteExpiredByUserId(Long userId, Long now);
+}
@@ -1,7 +1,6 @@
 package spring.rakha.postgres.rest_api.resolver;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.HttpStatus;
@@ -11,38 +10,96 @@ import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 import org.springframework.web.server.ResponseStatusException;
-import spring.rakha.postgres.rest_api.entity.User;
-import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenDenyList;
+import spring.rakha.postgres.rest_api.security.TokenSigner;
+import spring.rakha.postgres.rest_api.security.UnauthorizedLimiter;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 
-@Slf4j
+import java.util.Optional;
 
 @Component
 public class UserArgumentResolver implements HandlerMethodArgumentResolver {
 
     @Autowired
-    private UserRepository userRepository;
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private TokenSigner tokenSigner;
+
+    @Autowired
+    private TokenDenyList tokenDenyList;
+
+    @Autowired
+    private UnauthorizedLimiter unauthorizedLimiter;
 
     @Override
     public boolean supportsParameter(MethodParameter parameter) {
-        return User.class.equals(parameter.getParameterType());
+        return UserPrincipal.class.equals(parameter.getParameterType());
     }
 
     @Override
     public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer, NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
         HttpServletRequest servletRequest = (HttpServletRequest) webRequest.getNativeRequest();
+        String client = servletRequest.getRemoteAddr();
         String token = servletRequest.getHeader("X-API-TOKEN");
-        log.info("Check Token: {}", token);
         if (token == null) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+            throw unauthorized(client);
+        }
+
+        Optional<TokenSigner.Claims> claims = tokenSigner.verify(token);
+        if (claims.isPresent()) {
+            return resolveSigned(client, token, claims.get());
+        }
+
+        Optional<UserPrincipal> cached = tokenCache.get(token);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        if (tokenCache.isUnknown(token)) {
+            throw unauthorized(client);
+        }
+
+        // a valid token is always served; only a client's next database lookup is refused
+        if (unauthorizedLimiter.isLimited(client)) {
+            throw tooManyRequests();
         }
 
-        User user = userRepository.findFirstByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
+        Optional<UserPrincipal> user = userSessionRepository.findPrincipalByToken(token)
+                .filter(principal -> principal.tokenExpiredAt() >= System.currentTimeMillis());
+        if (user.isEmpty()) {
+            tokenCache.putUnknown(token);
+            throw unauthorized(client);
+        }
+
+        tokenCache.put(token, user.get());
+
+        return user.get();
+    }
 
-        if (user.getTokenExpiredAt() < System.currentTimeMillis()) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+    private UserPrincipal resolveSigned(String client, String token, TokenSigner.Claims claims) {
+        if (claims.expiredAt() < System.currentTimeMillis() || tokenDenyList.isRevoked(claims.tokenId())) {
+            throw unauthorized(client);
         }
 
-        return user;
+        return new UserPrincipal(claims.userId(), claims.username(), null, token, claims.expiredAt());
+    }
+
+    private ResponseStatusException unauthorized(String client) {
+        if (unauthorizedLimiter.isLimited(client)) {
+            return tooManyRequests();
+        }
+
+        unauthorizedLimiter.recordFailure(client);
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized");
+    }
+
+    private ResponseStatusException tooManyRequests() {
+        return new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many unauthorized requests");
     }
 }
@@ -209,10 +209,27 @@ public class BCrypt {
     static final int MIN_LOG_ROUNDS = 4;
     static final int MAX_LOG_ROUNDS = 31;
 
+    // One engine per thread, so hashing reuses its key schedule instead of allocating one
+    private static final ThreadLocal<BCrypt> ENGINE = ThreadLocal.withInitial(BCrypt::new);
+
     // Expanded Blowfish key
-    private int P[];
+    private final int P[] = new int[P_orig.length];
+
+    private final int S[] = new int[S_orig.length];
+
+    // Key material, as the words the key schedule XORs into P
+    private final int keyWords[] = new int[P_orig.length];
+
+    private final int keyWordsBug[] = new int[P_orig.length];
+
+    private final int saltWords[] = new int[BCRYPT_SALT_LEN / 4];
 
-    private int S[];
+    // Working buffers
+    private final int cdata[] = new int[bf_crypt_ciphertext.length];
+
+    private final int lr[] = new int[2];
+
+    private final byte hashed[] = new byte[bf_crypt_ciphertext.length * 4];
 
     /**
      * Encode a byte array using bcrypt's slightly-modified base64 encoding scheme. Note
@@ -276,7 +293,6 @@ public class BCrypt {
      * @throws IllegalArgumentException if maxolen is invalid
      */
     static byte[] decode_base64(String s, int maxolen) throws IllegalArgumentException {
-        StringBuilder rs = new StringBuilder();
         int off = 0, slen = s.length(), olen = 0;
         byte ret[];
         byte c1, c2, c3, c4, o;
@@ -285,6 +301,7 @@ public class BCrypt {
             throw new IllegalArgumentException("Invalid maxolen");
         }
 
+        ret = new byte[maxolen];
         while (off < slen - 1 && olen < maxolen) {
             c1 = char64(s.charAt(off++));
             c2 = char64(s.charAt(off++));
@@ -293,7 +310,7 @@ public class BCrypt {
             }
             o = (byte) (c1 << 2);
             o |= (c2 & 0x30) >> 4;
-            rs.append((char) o);
+            ret[olen] = o;
             if (++olen >= maxolen || off >= slen) {
                 break;
             }
@@ -303,22 +320,18 @@ public class BCrypt {
             }
             o = (byte) ((c2 & 0x0f) << 4);
             o |= (c3 & 0x3c) >> 2;
-            rs.append((char) o);
+            ret[olen] = o;
             if (++olen >= maxolen || off >= slen) {
                 break;
             }
             c4 = char64(s.charAt(off++));
             o = (byte) ((c3 & 0x03) << 6);
             o |= c4;
-            rs.append((char) o);
+            ret[olen] = o;
             ++olen;
         }
 
-        ret = new byte[olen];
-        for (off = 0; off < olen; off++) {
-            ret[off] = (byte) rs.charAt(off);
-        }
-        return ret;
+        return olen == maxolen ? ret : Arrays.copyOf(ret, olen);
     }
 
     /**
@@ -327,144 +340,118 @@ public class BCrypt {
      * @param off the position in the array of the blocks
      */
     private void encipher(int lr[], int off) {
+        final int P[] = this.P, S[] = this.S;
         int i, n, l = lr[off], r = lr[off + 1];
 
-        l ^= this.P[0];
+        l ^= P[0];
         for (i = 0; i <= BLOWFISH_NUM_ROUNDS - 2;) {
             // Feistel substitution on left word
-            n = this.S[(l >> 24) & 0xff];
-            n += this.S[0x100 | ((l >> 16) & 0xff)];
-            n ^= this.S[0x200 | ((l >> 8) & 0xff)];
-            n += this.S[0x300 | (l & 0xff)];
-            r ^= n ^ this.P[++i];
+            n = S[(l >> 24) & 0xff];
+            n += S[0x100 | ((l >> 16) & 0xff)];
+            n ^= S[0x200 | ((l >> 8) & 0xff)];
+            n += S[0x300 | (l & 0xff)];
+            r ^= n ^ P[++i];
 
             // Feistel substitution on right word
-            n = this.S[(r >> 24) & 0xff];
-            n += this.S[0x100 | ((r >> 16) & 0xff)];
-            n ^= this.S[0x200 | ((r >> 8) & 0xff)];
-            n += this.S[0x300 | (r & 0xff)];
-            l ^= n ^ this.P[++i];
+            n = S[(r >> 24) & 0xff];
+            n += S[0x100 | ((r >> 16) & 0xff)];
+            n ^= S[0x200 | ((r >> 8) & 0xff)];
+            n += S[0x300 | (r & 0xff)];
+            l ^= n ^ P[++i];
         }
-        lr[off] = r ^ this.P[BLOWFISH_NUM_ROUNDS + 1];
+        lr[off] = r ^ P[BLOWFISH_NUM_ROUNDS + 1];
         lr[off + 1] = l;
     }
 
     /**
-     * Cycically extract a word of key material
+     * Cycically extract words of key material, starting from the first byte. Every pass of
+     * the key schedule consumes the same words, so they are extracted once per hash.
      * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
-     * @param signp a "pointer" (as a one-entry array) to the cumulative flag for
-     * non-benign sign extension
-     * @return correct and buggy next word of material from data as int[2]
+     * @param len the length of the key material; bytes past the end of data read as zero
+     * @param words receives the correct words of material
+     * @param wordsBug receives the words with the sign extension bug, or null
+     * @return the cumulative flag for non-benign sign extension
      */
-    private static int[] streamtowords(byte data[], int offp[], int signp[]) {
-        int i;
-        int words[] = { 0, 0 };
-        int off = offp[0];
-        int sign = signp[0];
-
-        for (i = 0; i < 4; i++) {
-            words[0] = (words[0] << 8) | (data[off] & 0xff);
-            words[1] = (words[1] << 8) | data[off]; // sign extension bug
-            if (i > 0) {
-                sign |= words[1] & 0x80;
+    private static int streamtowords(byte data[], int len, int words[], int wordsBug[]) {
+        int off = 0, sign = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            int word = 0, wordBug = 0;
+            for (int j = 0; j < 4; j++) {
+                byte b = off < data.length ? data[off] : 0;
+                word = (word << 8) | (b & 0xff);
+                wordBug = (wordBug << 8) | b; // sign extension bug
+                if (j > 0) {
+                    sign |= wordBug & 0x80;
+                }
+                off = (off + 1) % len;
+            }
+            words[i] = word;
+            if (wordsBug != null) {
+                wordsBug[i] = wordBug;
             }
-            off = (off + 1) % data.length;
         }
 
-        offp[0] = off;
-        signp[0] = sign;
-        return words;
-    }
-
-    /**
-     * Cycically extract a word of key material
-     * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
-     * @return the next word of material from data
-     */
-    private static int streamtoword(byte data[], int offp[]) {
-        int signp[] = { 0 };
-        return streamtowords(data, offp, signp)[0];
-    }
-
-    /**
-     * Cycically extract a word of key material, with sign-extension bug
-     * @param data the string to extract the data from
-     * @param offp a "pointer" (as a one-entry array) to the current offset into data
-     * @return the next word of material from data
-     */
-    private static int streamtoword_bug(byte data[], int offp[]) {
-        int signp[] = { 0 };
-        return streamtowords(data, offp, signp)[1];
+        return sign;
     }
 
     /**
      * Initialise the Blowfish key schedule
      */
     private void init_key() {
-        this.P = P_orig.clone();
-        this.S = S_orig.clone();
+        System.arraycopy(P_orig, 0, this.P, 0, P_orig.length);
+        System.arraycopy(S_orig, 0, this.S, 0, S_orig.length);
     }
 
     /**
      * Key the Blowfish cipher
-     * @param key an array containing the key
-     * @param sign_ext_bug true to implement the 2x bug
-     * @param safety bit 16 is set when the safety measure is requested
+     * @param words the key material, repeated cyclically
      */
-    private void key(byte key[], boolean sign_ext_bug, int safety) {
+    private void key(int words[]) {
+        final int P[] = this.P, S[] = this.S, lr[] = this.lr;
         int i;
-        int koffp[] = { 0 };
-        int lr[] = { 0, 0 };
-        int plen = this.P.length, slen = this.S.length;
+        int plen = P.length, slen = S.length;
 
         for (i = 0; i < plen; i++) {
-            if (!sign_ext_bug) {
-                this.P[i] = this.P[i] ^ streamtoword(key, koffp);
-            }
-            else {
-                this.P[i] = this.P[i] ^ streamtoword_bug(key, koffp);
-            }
+            P[i] = P[i] ^ words[i % words.length];
         }
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < plen; i += 2) {
             encipher(lr, 0);
-            this.P[i] = lr[0];
-            this.P[i + 1] = lr[1];
+            P[i] = lr[0];
+            P[i + 1] = lr[1];
         }
 
         for (i = 0; i < slen; i += 2) {
             encipher(lr, 0);
-            this.S[i] = lr[0];
-            this.S[i + 1] = lr[1];
+            S[i] = lr[0];
+            S[i + 1] = lr[1];
         }
     }
 
     /**
      * Perform the "enhanced key schedule" step described by Provos and Mazieres in "A
      * Future-Adaptable Password Scheme" https://www.openbsd.org/papers/bcrypt-paper.ps
-     * @param data salt information
-     * @param key password information
+     * over the key material already extracted into keyWords, keyWordsBug and saltWords
      * @param sign_ext_bug true to implement the 2x bug
      * @param safety bit 16 is set when the safety measure is requested
+     * @param sign the non-benign sign-extension flag of the password
      */
-    private void ekskey(byte data[], byte key[], boolean sign_ext_bug, int safety) {
+    private void ekskey(boolean sign_ext_bug, int safety, int sign) {
+        final int P[] = this.P, S[] = this.S, lr[] = this.lr;
         int i;
-        int koffp[] = { 0 }, doffp[] = { 0 };
-        int lr[] = { 0, 0 };
-        int plen = this.P.length, slen = this.S.length;
-        int signp[] = { 0 }; // non-benign sign-extension flag
+        int doff = 0;
+        int plen = P.length, slen = S.length;
+        int words[] = sign_ext_bug ? this.keyWordsBug : this.keyWords;
         int diff = 0; // zero iff correct and buggy are same
 
         for (i = 0; i < plen; i++) {
-            int words[] = streamtowords(key, koffp, signp);
-            diff |= words[0] ^ words[1];
-            this.P[i] = this.P[i] ^ words[sign_ext_bug ? 1 : 0];
+            diff |= this.keyWords[i] ^ this.keyWordsBug[i];
+            P[i] = P[i] ^ words[i];
         }
 
-        int sign = signp[0];
-
         /*
          * At this point, "diff" is zero iff the correct and buggy algorithms produced
          * exactly the same result. If so and if "sign" is non-zero, which indicates that
@@ -491,25 +478,42 @@ public class BCrypt {
          * that could be directly specified by a password to the buggy algorithm (and to
          * the fully correct one as well, but that's a side-effect).
          */
-        this.P[0] ^= sign;
+        P[0] ^= sign;
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < plen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
+            lr[0] ^= this.saltWords[doff];
+            lr[1] ^= this.saltWords[doff + 1];
+            doff = (doff + 2) % this.saltWords.length;
             encipher(lr, 0);
-            this.P[i] = lr[0];
-            this.P[i + 1] = lr[1];
+            P[i] = lr[0];
+            P[i + 1] = lr[1];
         }
 
         for (i = 0; i < slen; i += 2) {
-            lr[0] ^= streamtoword(data, doffp);
-            lr[1] ^= streamtoword(data, doffp);
+            lr[0] ^= this.saltWords[doff];
+            lr[1] ^= this.saltWords[doff + 1];
+            doff = (doff + 2) % this.saltWords.length;
             encipher(lr, 0);
-            this.S[i] = lr[0];
-            this.S[i + 1] = lr[1];
+            S[i] = lr[0];
+            S[i + 1] = lr[1];
         }
     }
 
+    /**
+     * Wipe the key schedule and key material left over from the last hash
+     */
+    private void clear() {
+        Arrays.fill(this.P, 0);
+        Arrays.fill(this.S, 0);
+        Arrays.fill(this.keyWords, 0);
+        Arrays.fill(this.keyWordsBug, 0);
+        Arrays.fill(this.saltWords, 0);
+        Arrays.fill(this.cdata, 0);
+        Arrays.fill(this.hashed, (byte) 0);
+    }
+
     static long roundsForLogRounds(int log_rounds) {
         if (log_rounds < 4 || log_rounds > 31) {
             throw new IllegalArgumentException("Bad number of rounds");
@@ -520,15 +524,17 @@ public class BCrypt {
     /**
      * Perform the central password hashing step in the bcrypt scheme
      * @param password the password to hash
+     * @param password_len the length of the password; a trailing NUL past the end of the
+     * array reads as zero
      * @param salt the binary salt to hash with the password
      * @param log_rounds the binary logarithm of the number of rounds of hashing to apply
      * @param sign_ext_bug true to implement the 2x bug
      * @param safety bit 16 is set when the safety measure is requested
-     * @return an array containing the binary hashed password
+     * @return an array containing the binary hashed password, valid until the next call
      */
-    private byte[] crypt_raw(byte password[], byte salt[], int log_rounds, boolean sign_ext_bug, int safety,
-                             boolean for_check) {
-        int cdata[] = bf_crypt_ciphertext.clone();
+    private byte[] crypt_raw(byte password[], int password_len, byte salt[], int log_rounds, boolean sign_ext_bug,
+                             int safety, boolean for_check) {
+        final int cdata[] = this.cdata;
         int clen = cdata.length;
 
         long rounds;
@@ -552,20 +558,26 @@ public class BCrypt {
             throw new IllegalArgumentException("Bad salt length");
         }
 
+        int sign = streamtowords(password, password_len, this.keyWords, this.keyWordsBug);
+        streamtowords(salt, salt.length, this.saltWords, null);
+        int passwordWords[] = sign_ext_bug ? this.keyWordsBug : this.keyWords;
+
         init_key();
-        ekskey(salt, password, sign_ext_bug, safety);
+        ekskey(sign_ext_bug, safety, sign);
         for (int i = 0; i < rounds; i++) {
-            key(password, sign_ext_bug, safety);
-            key(salt, false, safety);
+            key(passwordWords);
+            key(this.saltWords);
         }
 
+        System.arraycopy(bf_crypt_ciphertext, 0, cdata, 0, clen);
+
         for (int i = 0; i < 64; i++) {
             for (int j = 0; j < (clen >> 1); j++) {
                 encipher(cdata, j << 1);
             }
         }
 
-        byte[] ret = new byte[clen * 4];
+        final byte ret[] = this.hashed;
         for (int i = 0, j = 0; i < clen; i++) {
             ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
             ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
@@ -609,7 +621,7 @@ public class BCrypt {
         byte saltb[], hashed[];
         char minor = (char) 0;
         int rounds, off;
-        StringBuilder rs = new StringBuilder();
+        StringBuilder rs = new StringBuilder(60);
 
         if (salt == null) {
             throw new IllegalArgumentException("salt cannot be null");
@@ -648,13 +660,19 @@ public class BCrypt {
         real_salt = salt.substring(off + 3, off + 25);
         saltb = decode_base64(real_salt, BCRYPT_SALT_LEN);
 
-        if (minor >= 'a') {
-            passwordb = Arrays.copyOf(passwordb, passwordb.length + 1);
+        B = ENGINE.get();
+        try {
+            // minor revisions hash the password's terminating NUL as well
+            hashed = B.crypt_raw(passwordb, minor >= 'a' ? passwordb.length + 1 : passwordb.length, saltb, rounds,
+                    minor == 'x', minor == 'a' ? 0x10000 : 0, for_check);
+            return encode(rs, minor, rounds, saltb, hashed);
         }
+        finally {
+            B.clear();
+        }
+    }
 
-        B = new BCrypt();
-        hashed = B.crypt_raw(passwordb, saltb, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0, for_check);
-
+    private static String encode(StringBuilder rs, char minor, int rounds, byte saltb[], byte hashed[]) {
         rs.append("$2");
         if (minor >= 'a') {
             rs.append(minor);
@@ -0,0 +1,94 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits login attempts before any password is checked, so a credential-stuffing burst is
+ * turned away with 429 instead of being paid for in BCrypt time.
+ * <p>
+ * Attempts are counted per username and per source address over the last
+ * {@code app.login-throttle.window} milliseconds; one more than
+ * {@code app.login-throttle.max-per-username} or {@code app.login-throttle.max-per-source}
+ * is refused. Every attempt counts, including refused ones, and an attempt is counted before
+ * it is admitted, so a concurrent burst cannot slip past the limit. A successful login
+ * clears its username's count but not its source's, or one valid account would unlock a
+ * source for guessing others.
+ */
+@Component
+public class LoginThrottle implements MeterBinder {
+
+    private final AtomicLong usernameRejections = new AtomicLong();
+
+    private final AtomicLong sourceRejections = new AtomicLong();
+
+    @Value("${app.login-throttle.max-per-username:10}")
+    private int maxPerUsername;
+
+    @Value("${app.login-throttle.max-per-source:50}")
+    private int maxPerSource;
+
+    @Value("${app.login-throttle.window:60000}")
+    private long window;
+
+    @Value("${app.login-throttle.max-keys:10000}")
+    private int maxKeys;
+
+    private SlidingWindowCounter usernames;
+
+    private SlidingWindowCounter sources;
+
+    @PostConstruct
+    void start() {
+        usernames = new SlidingWindowCounter(window, maxKeys);
+        sources = new SlidingWindowCounter(window, maxKeys);
+    }
+
+    public void acquire(String username, String source) {
+        if (sources.increment(source) > maxPerSource) {
+            sourceRejections.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts");
+        }
+
+        if (usernames.increment(username) > maxPerUsername) {
+            usernameRejections.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts");
+        }
+    }
+
+    public void succeeded(String username) {
+        usernames.reset(username);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("login.throttle.rejections", usernameRejections, AtomicLong::get)
+                .description("Login attempts refused with 429 before the password was checked")
+                .tag("by", "username")
+                .register(registry);
+        FunctionCounter.builder("login.throttle.rejections", sourceRejections, AtomicLong::get)
+                .description("Login attempts refused with 429 before the password was checked")
+                .tag("by", "source")
+                .register(registry);
+        Gauge.builder("login.throttle.keys", usernames, SlidingWindowCounter::size)
+                .tag("by", "username")
+                .register(registry);
+        Gauge.builder("login.throttle.keys", sources, SlidingWindowCounter::size)
+                .tag("by", "source")
+                .register(registry);
+    }
+
+    public void clear() {
+        usernames.clear();
+        sources.clear();
+    }
+}
@@ -0,0 +1,204 @@
+package spring.rakha.postgres.rest_api.security;
+
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs {@link BCrypt} on a small dedicated pool instead of the request threads, so a burst
+ * of logins cannot take every core away from the rest of the API.
+ * <p>
+ * The pool has {@code app.password-hasher.threads} workers (half the cores when 0) and at
+ * most {@code app.password-hasher.queue-capacity} waiting hashes; anything past that is
+ * answered with 429 straight away rather than queued behind work it cannot catch up with.
+ * <p>
+ * New hashes use {@code app.password-hasher.log-rounds}. When that is 0 the cost is
+ * calibrated at startup: the highest cost whose hash fits in
+ * {@code app.password-hasher.target-latency} milliseconds on this host, but never below
+ * {@code app.password-hasher.min-log-rounds}. Set it explicitly to give every instance the
+ * same cost. Stored hashes below that cost are raised to it on the next successful login,
+ * see {@link #upgrade(String, String)}.
+ */
+@Slf4j
+@Component
+public class PasswordHasher {
+
+    private static final int MAX_LOG_ROUNDS = 16;
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.password-hasher.threads:0}")
+    private int threads;
+
+    @Value("${app.password-hasher.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.password-hasher.log-rounds:0}")
+    private int logRounds;
+
+    @Value("${app.password-hasher.min-log-rounds:10}")
+    private int minLogRounds;
+
+    @Value("${app.password-hasher.target-latency:250}")
+    private long targetLatency;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private Timer hashTimer;
+
+    @PostConstruct
+    void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hasher-");
+        executor.setDaemon(true);
+        executor.initialize();
+
+        if (logRounds <= 0) {
+            logRounds = calibrate();
+        }
+
+        hashTimer = Timer.builder("password.hasher.hash")
+                .description("Time spent in BCrypt per hash or check, excluding the queue")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("password.hasher.queue", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Hashes waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("password.hasher.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Workers currently hashing")
+                .register(meterRegistry);
+        Gauge.builder("password.hasher.log.rounds", this, PasswordHasher::getLogRounds)
+                .description("BCrypt cost used for new hashes")
+                .register(meterRegistry);
+        FunctionCounter.builder("password.hasher.rejections", rejections, AtomicLong::get)
+                .description("Hashes refused with 429 because the queue was full")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdown();
+    }
+
+    public String hash(String password) {
+        return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(logRounds)));
+    }
+
+    public boolean check(String password, String hashed) {
+        return run(() -> BCrypt.checkpw(password, hashed));
+    }
+
+    /**
+     * Rehash an already verified password when its stored cost is below the policy. A higher
+     * cost is kept: hosts that calibrate differently must not rehash the same users back and
+     * forth. Empty when the hash is current, or when the pool is too busy to take the extra
+     * hash; the login goes through either way and the upgrade is retried next time.
+     */
+    public Optional<String> upgrade(String password, String hashed) {
+        if (logRounds(hashed) >= logRounds) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(hash(password));
+        } catch (ResponseStatusException exception) {
+            return Optional.empty();
+        }
+    }
+
+    public int getLogRounds() {
+        return logRounds;
+    }
+
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejections() {
+        return rejections.get();
+    }
+
+    private int calibrate() {
+        // warm the engine up on cheap hashes before timing one at the floor cost
+        String salt = BCrypt.gensalt(6);
+        for (int i = 0; i < 10; i++) {
+            BCrypt.hashpw("calibration", salt);
+        }
+
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", BCrypt.gensalt(minLogRounds));
+        long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        // every extra round doubles the work
+        int rounds = minLogRounds;
+        while (rounds < MAX_LOG_ROUNDS && elapsed * 2 <= targetLatency) {
+            elapsed *= 2;
+            rounds++;
+        }
+
+        log.info("Password hashing cost {} (about {} ms per hash, target {} ms)", rounds, elapsed, targetLatency);
+        return rounds;
+    }
+
+    private static int logRounds(String hashed) {
+        // $2a$10$... or $2$10$...
+        int off = hashed.indexOf('$', 1) + 1;
+        try {
+            return Integer.parseInt(hashed, off, off + 2, 10);
+        } catch (RuntimeException exception) {
+            return -1;
+        }
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> hashTimer.recordCallable(task));
+        } catch (TaskRejectedException exception) {
+            rejections.incrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many requests");
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Request interrupted");
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes expired sessions of all users every {@code app.session-sweeper.interval}
+ * milliseconds. Login only cleans up the sessions of the user logging in, so without this
+ * the sessions of users who never come back would stay in the table and its indexes.
+ * <p>
+ * A sweep deletes at most {@code app.session-sweeper.batch-size} rows per statement, each in
+ * its own transaction, and stops after {@code app.session-sweeper.max-batches} batches; the
+ * rest is left for the next sweep so that no sweep holds locks or a connection for long.
+ * Rows held by a concurrent logout are skipped and left for the next batch.
+ * <p>
+ * The delete goes through JDBC rather than a native JPA query: Hibernate cannot tell which
+ * tables a native bulk statement touches, so it would evict every second-level cache region
+ * on each sweep.
+ */
+@Slf4j
+@Component
+public class SessionSweeper {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.session-sweeper.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.session-sweeper.max-batches:100}")
+    private int maxBatches;
+
+    private DistributionSummary swept;
+
+    private Timer sweepTimer;
+
+    @PostConstruct
+    void start() {
+        swept = DistributionSummary.builder("session.sweeper.swept")
+                .description("Expired sessions deleted per sweep")
+                .baseUnit("rows")
+                .register(meterRegistry);
+        sweepTimer = Timer.builder("session.sweeper.duration")
+                .description("Time spent per sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-sweeper.interval:60000}",
+            initialDelayString = "${app.session-sweeper.interval:60000}")
+    public void sweep() {
+        sweepTimer.record(() -> {
+            long now = System.currentTimeMillis();
+            int total = 0;
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int deleted = jdbcTemplate.update("""
+                        delete from sessions where id in (
+                            select id from sessions where expired_at < ? order by expired_at limit ? for update skip locked
+                        )
+                        """, now, batchSize);
+                total += deleted;
+                if (deleted < batchSize) {
+                    break;
+                }
+            }
+
+            swept.record(total);
+            if (total > 0) {
+                log.info("Swept {} expired sessions", total);
+            }
+        });
+    }
+}
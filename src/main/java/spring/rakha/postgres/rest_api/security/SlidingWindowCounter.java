@@ -0,0 +1,130 @@
+package spring.rakha.postgres.rest_api.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-key event counts over a sliding window, for rate limits that are checked on every
+ * request and so must not take a lock.
+ * <p>
+ * The sliding count is approximated from two fixed windows: the events of the current window
+ * plus those of the previous one, weighted by how much of it still overlaps the sliding
+ * window. Both counts and the window they belong to are packed into one {@link AtomicLong}
+ * per key and updated with compare-and-set. Counts saturate at 65535.
+ * <p>
+ * At most {@code maxKeys} keys are tracked. When full, keys idle for two windows are dropped
+ * first, then arbitrary ones, so a flood of distinct keys can reset the counts of others.
+ */
+public class SlidingWindowCounter {
+
+    private static final long MAX_COUNT = 0xFFFF;
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private final long window;
+
+    private final int maxKeys;
+
+    public SlidingWindowCounter(long window, int maxKeys) {
+        this.window = window;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Records one event for {@code key} and returns the sliding count including it.
+     */
+    public double increment(String key) {
+        long now = System.currentTimeMillis();
+        AtomicLong counter = counters.get(key);
+        if (Objects.isNull(counter)) {
+            if (counters.size() >= maxKeys) {
+                evict(now);
+            }
+            counter = counters.computeIfAbsent(key, ignored -> new AtomicLong(pack(index(now), 0, 0)));
+        }
+
+        while (true) {
+            long state = counter.get();
+            long advanced = advance(state, index(now));
+            long next = pack(index(now), previous(advanced), Math.min(current(advanced) + 1, MAX_COUNT));
+            if (counter.compareAndSet(state, next)) {
+                return estimate(next, now);
+            }
+        }
+    }
+
+    /**
+     * The sliding count for {@code key}, without recording an event.
+     */
+    public double get(String key) {
+        AtomicLong counter = counters.get(key);
+        if (Objects.isNull(counter)) {
+            return 0;
+        }
+
+        long now = System.currentTimeMillis();
+        return estimate(advance(counter.get(), index(now)), now);
+    }
+
+    public void reset(String key) {
+        counters.remove(key);
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    private double estimate(long state, long now) {
+        double overlap = 1.0 - (double) (now % window) / window;
+        return previous(state) * overlap + current(state);
+    }
+
+    private long index(long now) {
+        return (now / window) & 0xFFFFFFFFL;
+    }
+
+    // moves the counts of a state written in an earlier window to the window at index
+    private long advance(long state, long index) {
+        long stateIndex = state >>> 32;
+        if (stateIndex == index) {
+            return state;
+        }
+        if (((stateIndex + 1) & 0xFFFFFFFFL) == index) {
+            return pack(index, current(state), 0);
+        }
+        return pack(index, 0, 0);
+    }
+
+    private void evict(long now) {
+        long index = index(now);
+        counters.values().removeIf(counter -> {
+            long state = advance(counter.get(), index);
+            return previous(state) == 0 && current(state) == 0;
+        });
+
+        Iterator<String> iterator = counters.keySet().iterator();
+        while (counters.size() >= maxKeys && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static long pack(long index, long previous, long current) {
+        return index << 32 | previous << 16 | current;
+    }
+
+    private static long previous(long state) {
+        return state >>> 16 & MAX_COUNT;
+    }
+
+    private static long current(long state) {
+        return state & MAX_COUNT;
+    }
+}
@@ -0,0 +1,214 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache of {@code X-API-TOKEN} to authenticated user, so that
+ * resolving the caller does not cost a database round trip on every request.
+ * <p>
+ * An entry lives for at most {@code app.token-cache.ttl} milliseconds and never past the
+ * session's expiry. Services that end a session call {@link #invalidate(String)}, ones that
+ * change the cached user call {@link #invalidateUser(Long)}; the cache is per instance, so
+ * with several instances a logout elsewhere is only seen once the entry's TTL runs out.
+ * <p>
+ * Tokens that resolved to no live session are remembered as unknown for
+ * {@code app.token-cache.negative-ttl} milliseconds, so retries of a bad or revoked token do
+ * not reach the database either. A token is random and only becomes valid by being issued
+ * at login, so an unknown entry never hides a new session.
+ */
+@Component
+public class TokenCache implements MeterBinder {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> unknown = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong unknownHits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Value("${app.token-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.token-cache.ttl:60000}")
+    private long ttl;
+
+    @Value("${app.token-cache.negative-ttl:10000}")
+    private long negativeTtl;
+
+    public Optional<UserPrincipal> get(String token) {
+        Entry entry = entries.get(token);
+        if (Objects.isNull(entry)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (entry.expiredAt() < System.currentTimeMillis()) {
+            if (entries.remove(token, entry)) {
+                evictions.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(entry.principal());
+    }
+
+    public void put(String token, UserPrincipal principal) {
+        if (maxSize <= 0 || Objects.isNull(principal.tokenExpiredAt())) {
+            return;
+        }
+
+        long expiredAt = Math.min(System.currentTimeMillis() + ttl, principal.tokenExpiredAt());
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(token, new Entry(principal, expiredAt));
+    }
+
+    public boolean isUnknown(String token) {
+        Long expiredAt = unknown.get(token);
+        if (Objects.isNull(expiredAt)) {
+            return false;
+        }
+
+        if (expiredAt < System.currentTimeMillis()) {
+            unknown.remove(token, expiredAt);
+            return false;
+        }
+
+        unknownHits.incrementAndGet();
+        return true;
+    }
+
+    public void putUnknown(String token) {
+        if (maxSize <= 0 || negativeTtl <= 0) {
+            return;
+        }
+
+        if (unknown.size() >= maxSize) {
+            evictUnknown();
+        }
+        unknown.put(token, System.currentTimeMillis() + negativeTtl);
+    }
+
+    public void invalidate(String token) {
+        if (Objects.isNull(token)) {
+            return;
+        }
+
+        invalidate(() -> entries.remove(token));
+    }
+
+    /**
+     * Drops every cached session of the user, for changes to the user rather than to one token.
+     */
+    public void invalidateUser(Long userId) {
+        invalidate(() -> entries.values().removeIf(entry -> Objects.equals(entry.principal().id(), userId)));
+    }
+
+    private void invalidate(Runnable remove) {
+        remove.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // a concurrent request may re-cache the old row before our transaction commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove.run();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("token.cache.size", entries, Map::size)
+                .register(registry);
+        FunctionCounter.builder("token.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("token.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("token.cache.requests", unknownHits, AtomicLong::get)
+                .tag("result", "unknown")
+                .register(registry);
+        FunctionCounter.builder("token.cache.evictions", evictions, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("token.cache.unknown.size", unknown, Map::size)
+                .register(registry);
+    }
+
+    public void clear() {
+        entries.clear();
+        unknown.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().expiredAt() < now;
+            if (expired) {
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+
+        // still full: drop arbitrary entries until there is room for a new one
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void evictUnknown() {
+        long now = System.currentTimeMillis();
+        unknown.values().removeIf(expiredAt -> expiredAt < now);
+
+        Iterator<String> iterator = unknown.keySet().iterator();
+        while (unknown.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry(UserPrincipal principal, long expiredAt) {
+    }
+}
@@ -0,0 +1,98 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Signed tokens revoked by logout before their expiry, checked on every request that
+ * presents one. Only the token id and its expiry are kept, and an entry is dropped once the
+ * token would have expired anyway, so the list stays as small as the number of live
+ * revoked tokens.
+ * <p>
+ * Revocations take effect on this instance immediately. Every
+ * {@code app.token.deny-list.flush-interval} milliseconds new ones are written to
+ * {@code revoked_tokens} and the ones written by other instances are read back, so they are
+ * seen elsewhere, and after a restart, within one interval.
+ */
+@Slf4j
+@Component
+public class TokenDenyList implements MeterBinder {
+
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+
+    private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void revoke(long tokenId, long expiredAt) {
+        if (Objects.isNull(revoked.putIfAbsent(tokenId, expiredAt))) {
+            pending.add(tokenId);
+        }
+    }
+
+    public boolean isRevoked(long tokenId) {
+        return revoked.containsKey(tokenId);
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.token.deny-list.flush-interval:10000}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Long tokenId = pending.poll(); Objects.nonNull(tokenId); tokenId = pending.poll()) {
+            Long expiredAt = revoked.get(tokenId);
+            if (Objects.nonNull(expiredAt)) {
+                batch.add(new Object[]{tokenId, expiredAt});
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        try {
+            if (!batch.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "insert into revoked_tokens (token_id, expired_at) values (?, ?) on conflict do nothing", batch);
+            }
+            jdbcTemplate.update("delete from revoked_tokens where expired_at < ?", now);
+            jdbcTemplate.query("select token_id, expired_at from revoked_tokens",
+                    row -> { revoked.putIfAbsent(row.getLong(1), row.getLong(2)); });
+        } catch (DataAccessException e) {
+            // keep them for the next flush, they are already enforced on this instance
+            batch.forEach(row -> pending.add((Long) row[0]));
+            log.warn("Could not persist revoked tokens: {}", e.getMessage());
+        }
+
+        revoked.values().removeIf(expiredAt -> expiredAt < now);
+    }
+
+    @PreDestroy
+    void close() {
+        flush();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("token.deny.list.size", revoked, Map::size)
+                .register(registry);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+}
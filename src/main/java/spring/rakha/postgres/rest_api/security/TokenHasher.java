@@ -0,0 +1,24 @@
+package spring.rakha.postgres.rest_api.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of an opaque {@code X-API-TOKEN}, the form in which sessions store it. The tokens
+ * are random UUIDs, so a fast unsalted hash is enough to keep a database dump from being a
+ * list of usable tokens.
+ */
+public final class TokenHasher {
+
+    private TokenHasher() {
+    }
+
+    public static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package spring.rakha.postgres.rest_api.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Issues and verifies self-contained {@code X-API-TOKEN}s, so that authenticating a request
+ * needs no database lookup.
+ * <p>
+ * A token is {@code base64url(tokenId, userId, expiredAt, username) "." base64url(HMAC-SHA256)}
+ * keyed with {@code app.token.secret} (base64, at least 32 bytes). Without a configured secret
+ * a random key is generated at startup, so tokens do not survive a restart and are not accepted
+ * by other instances. Login only issues them when {@code app.token.signed} is true; opaque
+ * tokens kept in the {@code sessions} table keep working either way. Revocation before expiry
+ * goes through {@link TokenDenyList}.
+ */
+@Slf4j
+@Component
+public class TokenSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int HEADER_LENGTH = 3 * Long.BYTES;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${app.token.signed:false}")
+    private boolean enabled;
+
+    @Value("${app.token.secret:}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    // cloned per call: cheaper than Mac.getInstance and init, and unlike a thread-local it also
+    // pays off on virtual threads, which are never reused
+    private Mac prototype;
+
+    @PostConstruct
+    void init() {
+        byte[] bytes;
+        if (secret.isBlank()) {
+            log.warn("app.token.secret is not set, signed tokens are only valid on this instance until it restarts");
+            bytes = new byte[32];
+            random.nextBytes(bytes);
+        } else {
+            bytes = Base64.getDecoder().decode(secret);
+            if (bytes.length < 32) {
+                throw new IllegalStateException("app.token.secret must be at least 32 bytes");
+            }
+        }
+        key = new SecretKeySpec(bytes, ALGORITHM);
+        prototype = newMac();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String sign(Long userId, String username, long expiredAt) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = ByteBuffer.allocate(HEADER_LENGTH + name.length)
+                .putLong(random.nextLong())
+                .putLong(userId)
+                .putLong(expiredAt)
+                .put(name)
+                .array();
+
+        String encoded = ENCODER.encodeToString(payload);
+        return encoded + "." + ENCODER.encodeToString(mac(encoded));
+    }
+
+    /**
+     * The claims of {@code token} when it is a signed token with a valid signature. Expiry
+     * and revocation are left to the caller.
+     */
+    public Optional<Claims> verify(String token) {
+        int separator = Objects.isNull(token) ? -1 : token.lastIndexOf('.');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+
+        String encoded = token.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, mac(encoded))) {
+                return Optional.empty();
+            }
+
+            ByteBuffer payload = ByteBuffer.wrap(DECODER.decode(encoded));
+            if (payload.remaining() < HEADER_LENGTH) {
+                return Optional.empty();
+            }
+            long tokenId = payload.getLong();
+            long userId = payload.getLong();
+            long expiredAt = payload.getLong();
+            String username = StandardCharsets.UTF_8.decode(payload).toString();
+            return Optional.of(new Claims(tokenId, userId, username, expiredAt));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] mac(String encoded) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            mac = newMac();
+        }
+        return mac.doFinal(encoded.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Claims(long tokenId, long userId, String username, long expiredAt) {
+    }
+}
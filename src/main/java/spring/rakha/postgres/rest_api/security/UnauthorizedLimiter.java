@@ -0,0 +1,70 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts 401 responses per client. Once a client has collected
+ * {@code app.unauthorized-limit.max-failures} of them in the last
+ * {@code app.unauthorized-limit.window} milliseconds, it gets 429 instead of a database lookup
+ * for a token that is neither signed nor cached, and instead of further 401s, so a client
+ * retrying a bad token in a tight loop stops reaching Postgres. Tokens that verify or are
+ * cached are still served, so other users behind the same address are not locked out.
+ * <p>
+ * A client is its remote address; behind a proxy that is only the caller's address when
+ * {@code server.forward-headers-strategy} is set.
+ */
+@Component
+public class UnauthorizedLimiter implements MeterBinder {
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    @Value("${app.unauthorized-limit.max-failures:100}")
+    private int maxFailures;
+
+    @Value("${app.unauthorized-limit.window:60000}")
+    private long window;
+
+    @Value("${app.unauthorized-limit.max-clients:10000}")
+    private int maxClients;
+
+    private SlidingWindowCounter failures;
+
+    @PostConstruct
+    void start() {
+        failures = new SlidingWindowCounter(window, maxClients);
+    }
+
+    public boolean isLimited(String client) {
+        if (failures.get(client) >= maxFailures) {
+            rejections.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public void recordFailure(String client) {
+        failures.increment(client);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("unauthorized.limiter.clients", failures, SlidingWindowCounter::size)
+                .description("Clients with recent 401 responses")
+                .register(registry);
+        FunctionCounter.builder("unauthorized.limiter.rejections", rejections, AtomicLong::get)
+                .description("Requests refused with 429 after too many 401 responses")
+                .register(registry);
+    }
+
+    public void clear() {
+        failures.clear();
+    }
+}
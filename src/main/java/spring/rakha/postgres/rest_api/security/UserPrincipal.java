@@ -0,0 +1,9 @@
+package spring.rakha.postgres.rest_api.security;
+
+/**
+ * The authenticated caller, as resolved from {@code X-API-TOKEN}. Loaded with a projection
+ * query over the session and its user so resolving it never touches the user's contacts;
+ * services that need the {@code User} entity load it by {@link #id()}.
+ */
+public record UserPrincipal(Long id, String username, String name, String token, Long tokenExpiredAt) {
+}
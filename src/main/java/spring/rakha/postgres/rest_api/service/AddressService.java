@@ -7,18 +7,25 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import spring.rakha.postgres.rest_api.entity.Address;
 import spring.rakha.postgres.rest_api.entity.Contact;
-import spring.rakha.postgres.rest_api.entity.User;
 import spring.rakha.postgres.rest_api.model.AddressResponse;
 import spring.rakha.postgres.rest_api.model.CreateAddressRequest;
 import spring.rakha.postgres.rest_api.repository.AddressRepository;
 import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Service
 public class AddressService {
 
+    public static final int MAX_BATCH_CONTACTS = 100;
+
     @Autowired
     private ValidationService validationService;
 
@@ -29,10 +36,10 @@ public class AddressService {
     private ContactRepository contactRepository;
 
     @Transactional
-    public AddressResponse create(User user, Integer contactId, CreateAddressRequest request) {
+    public AddressResponse create(UserPrincipal user, Integer contactId, CreateAddressRequest request) {
         validationService.validate(request);
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
         Address address = new Address();
@@ -58,24 +65,24 @@ public class AddressService {
     }
 
     @Transactional(readOnly = true)
-    public AddressResponse get(User user, Integer contactId, Integer addressId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+    public AddressResponse get(UserPrincipal user, Integer contactId, Integer addressId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
-        Address address = addressRepository.findFirstByContactAndId(contact, addressId)
+        Address address = addressRepository.findOwnedById(contact, addressId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address Not Found"));
 
         return toAddressResponse(address);
     }
 
     @Transactional
-    public AddressResponse update(User user, Integer contactId, Integer addressId, CreateAddressRequest request) {
+    public AddressResponse update(UserPrincipal user, Integer contactId, Integer addressId, CreateAddressRequest request) {
         validationService.validate(request);
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
-        Address address = addressRepository.findFirstByContactAndId(contact, addressId)
+        Address address = addressRepository.findOwnedById(contact, addressId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address Not Found"));
 
         if (Objects.nonNull(request.getCountry())) {
@@ -100,27 +107,66 @@ public class AddressService {
     }
 
     @Transactional
-    public void delete(User user, Integer contactId, Integer addressId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+    public void delete(UserPrincipal user, Integer contactId, Integer addressId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
-        Address address = addressRepository.findFirstByContactAndId(contact, addressId)
+        Address address = addressRepository.findOwnedById(contact, addressId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address Not Found"));
 
         addressRepository.delete(address);
     }
 
     @Transactional(readOnly = true)
-    public List<AddressResponse> list(User user, Integer contactId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+    public Long version(UserPrincipal user, Integer contactId, Integer addressId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
+
+        return addressRepository.findOwnedById(contact, addressId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Address Not Found"))
+                .getVersion();
+    }
+
+    @Transactional(readOnly = true)
+    public String listVersion(UserPrincipal user, Integer contactId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
+
+        return addressRepository.findListVersionByContactId(contact.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public List<AddressResponse> list(UserPrincipal user, Integer contactId) {
+        Contact contact = contactRepository.findWithAddressByUserIdAndId(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
-        List<Address> addresses = addressRepository.findAllByContact(contact);
+        return contact.getAddress().stream().map(this::toAddressResponse).toList();
+    }
 
-        return addresses.stream().map(this::toAddressResponse).toList();
+    /**
+     * Addresses of several contacts, keyed by contact id in request order. Ownership of all
+     * contacts is checked with one count and the addresses are read with one {@code IN} query.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<AddressResponse>> list(UserPrincipal user, List<Long> contactIds) {
+        Set<Long> ids = new LinkedHashSet<>(contactIds);
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_CONTACTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Between 1 and " + MAX_BATCH_CONTACTS + " contact ids are required");
+        }
+
+        if (contactRepository.countByUserIdAndIdIn(user.id(), ids) != ids.size()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found");
+        }
+
+        Map<Long, List<AddressResponse>> addresses = new LinkedHashMap<>();
+        ids.forEach(id -> addresses.put(id, new ArrayList<>()));
+        for (Address address : addressRepository.findAllByContactIdIn(ids)) {
+            addresses.get(address.getContact().getId()).add(toAddressResponse(address));
+        }
+        return addresses;
     }
 
-    private AddressResponse toAddressResponse(Address address) {
+    public AddressResponse toAddressResponse(Address address) {
         return AddressResponse.builder()
                 .street(address.getStreet())
                 .city(address.getCity())
@@ -4,13 +4,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
 import spring.rakha.postgres.rest_api.model.LoginUserRequest;
 import spring.rakha.postgres.rest_api.model.TokenResponse;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
-import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.LoginThrottle;
+import spring.rakha.postgres.rest_api.security.PasswordHasher;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenDenyList;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.security.TokenSigner;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -19,36 +29,91 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
     @Autowired
     private ValidationService validationService;
 
-    @Transactional
-    public TokenResponse login(LoginUserRequest request) {
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private TokenSigner tokenSigner;
+
+    @Autowired
+    private TokenDenyList tokenDenyList;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Not transactional: the password is checked, and upgraded, with no pooled connection
+     * held, so logins waiting for a hasher cannot starve the rest of the API of connections.
+     * The user is read in its own short transaction and the writes are made in another.
+     * Throttled attempts are refused before either, at no database cost.
+     */
+    public TokenResponse login(LoginUserRequest request, String source) {
         validationService.validate(request);
+        loginThrottle.acquire(request.getUsername(), source);
 
         User user = userRepository.findOneByUsername(request.getUsername())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password Wrong"));
 
-        if (!BCrypt.checkpw(request.getPassword(), user.getPassword())) {
+        if (!passwordHasher.check(request.getPassword(), user.getPassword())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Username or Password Wrong");
         }
+        loginThrottle.succeeded(request.getUsername());
+
+        // otherwise a login leaves the users row alone
+        Optional<String> upgraded = passwordHasher.upgrade(request.getPassword(), user.getPassword());
+
+        Long expiredAt = next30Days();
+        if (tokenSigner.isEnabled()) {
+            upgraded.ifPresent(password -> transactionTemplate.executeWithoutResult(
+                    status -> userRepository.updatePassword(user.getId(), password)));
+            return TokenResponse.builder()
+                    .token(tokenSigner.sign(user.getId(), user.getUsername(), expiredAt))
+                    .expiredAt(expiredAt)
+                    .build();
+        }
+
+        String token = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            upgraded.ifPresent(password -> userRepository.updatePassword(user.getId(), password));
 
-        user.setToken(UUID.randomUUID().toString());
-        user.setTokenExpiredAt(next30Days());
-        userRepository.save(user);
+            // the user's other sessions stay valid, only the ones already expired are dropped
+            userSessionRepository.deleteExpiredByUserId(user.getId(), System.currentTimeMillis());
+
+            UserSession session = new UserSession();
+            session.setUser(userRepository.getReferenceById(user.getId()));
+            session.setTokenHash(TokenHasher.hash(token));
+            session.setExpiredAt(expiredAt);
+            userSessionRepository.save(session);
+        });
 
         return TokenResponse.builder()
-                .token(user.getToken())
-                .expiredAt(user.getTokenExpiredAt())
+                .token(token)
+                .expiredAt(expiredAt)
                 .build();
     }
 
     @Transactional
-    public void logout(User user) {
-        user.setToken(null);
-        user.setTokenExpiredAt(null);
+    public void logout(UserPrincipal principal) {
+        Optional<TokenSigner.Claims> claims = tokenSigner.verify(principal.token());
+        if (claims.isPresent()) {
+            tokenDenyList.revoke(claims.get().tokenId(), claims.get().expiredAt());
+            return;
+        }
 
-        userRepository.save(user);
+        tokenCache.invalidate(principal.token());
+        userSessionRepository.deleteByToken(principal.token());
     }
 
     private Long next30Days(){
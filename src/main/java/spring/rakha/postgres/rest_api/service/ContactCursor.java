@@ -0,0 +1,40 @@
+package spring.rakha.postgres.rest_api.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Opaque {@code after} token for keyset paging over contacts. Contacts are scrolled in id
+ * order, so the token only carries the id of the last contact the client has seen.
+ */
+public final class ContactCursor {
+
+    private ContactCursor() {
+    }
+
+    public static String encode(ScrollPosition position) {
+        Object id = ((KeysetScrollPosition) position).getKeys().get("id");
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String after) {
+        if (Objects.isNull(after) || after.isEmpty()) {
+            return ScrollPosition.keyset();
+        }
+
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(after), StandardCharsets.UTF_8));
+            return ScrollPosition.forward(Map.of("id", id));
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package spring.rakha.postgres.rest_api.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+import org.hibernate.query.criteria.JpaRoot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -14,27 +35,63 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 import spring.rakha.postgres.rest_api.entity.Contact;
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.model.AddressResponse;
 import spring.rakha.postgres.rest_api.model.ContactResponse;
 import spring.rakha.postgres.rest_api.model.CreateContactRequest;
+import spring.rakha.postgres.rest_api.model.ImportContactResponse;
+import spring.rakha.postgres.rest_api.model.ImportErrorResponse;
 import spring.rakha.postgres.rest_api.model.SearchContactRequest;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
 import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 
 @Service
 public class ContactService {
 
+    // matches the fetch size hint on ContactRepository.streamAllByUserIdOrderById
+    private static final int EXPORT_CHUNK_SIZE = 500;
+
+    // matches spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int IMPORT_BATCH_SIZE = 500;
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
     @Autowired
     private ValidationService validationService;
 
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private AddressService addressService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Transactional
-    public ContactResponse create(User user, CreateContactRequest request) {
+    public ContactResponse create(UserPrincipal user, CreateContactRequest request) {
         validationService.validate(request);
 
         Contact contact = new Contact();
@@ -42,26 +99,106 @@ public class ContactService {
         contact.setLastName(request.getLastName());
         contact.setPhone(request.getPhone());
         contact.setEmail(request.getEmail());
-        contact.setUser(user);
+        contact.setUser(userRepository.getReferenceById(user.id()));
 
         contactRepository.save(contact);
 
         return toContactResponse(contact);
     }
 
+    @Transactional
+    public ImportContactResponse importContacts(UserPrincipal user, String contentType, InputStream inputStream) throws IOException {
+        // bulk rows are not worth a second-level cache put each, nor the entries they would evict
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+
+        int row = 0;
+        int imported = 0;
+        List<ImportErrorResponse> errors = new ArrayList<>();
+        List<CreateContactRequest> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+        try (MappingIterator<CreateContactRequest> rows = importReader(contentType, inputStream)) {
+            while (rows.hasNextValue()) {
+                row++;
+                CreateContactRequest request = rows.nextValue();
+                try {
+                    validationService.validate(request);
+                } catch (ConstraintViolationException exception) {
+                    errors.add(ImportErrorResponse.builder().row(row).message(exception.getMessage()).build());
+                    continue;
+                }
+
+                batch.add(request);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    imported += insertBatch(user, batch);
+                }
+            }
+        } catch (JsonProcessingException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid import row " + (row + 1));
+        }
+        imported += insertBatch(user, batch);
+
+        return ImportContactResponse.builder()
+                .imported(imported)
+                .errors(errors)
+                .build();
+    }
+
+    private MappingIterator<CreateContactRequest> importReader(String contentType, InputStream inputStream) throws IOException {
+        if (Objects.nonNull(contentType) && contentType.startsWith("text/csv")) {
+            return CSV_MAPPER.readerFor(CreateContactRequest.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(inputStream);
+        }
+
+        // a JSON array and newline-delimited JSON objects both read as a sequence of values
+        return objectMapper.readerFor(CreateContactRequest.class).readValues(inputStream);
+    }
+
+    private int insertBatch(UserPrincipal user, List<CreateContactRequest> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        User owner = userRepository.getReferenceById(user.id());
+        List<Contact> contacts = batch.stream().map(request -> {
+            Contact contact = new Contact();
+            contact.setFirstName(request.getFirstName());
+            contact.setLastName(request.getLastName());
+            contact.setPhone(request.getPhone());
+            contact.setEmail(request.getEmail());
+            contact.setUser(owner);
+            return contact;
+        }).toList();
+
+        contactRepository.saveAll(contacts);
+        entityManager.flush();
+        entityManager.clear();
+
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+
     @Transactional(readOnly = true)
-    public ContactResponse get(User user, Integer contactId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+    public ContactResponse get(UserPrincipal user, Integer contactId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
         return toContactResponse(contact);
     }
 
+    @Transactional(readOnly = true)
+    public Long version(UserPrincipal user, Integer contactId) {
+        return contactRepository.findOwnedById(user.id(), contactId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"))
+                .getVersion();
+    }
+
     @Transactional
-    public ContactResponse update(User user, CreateContactRequest request, Integer contactId) {
+    public ContactResponse update(UserPrincipal user, CreateContactRequest request, Integer contactId) {
         validationService.validate(request);
 
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
         if (Objects.nonNull(request.getFirstName())){
@@ -86,45 +223,184 @@ public class ContactService {
     }
 
     @Transactional
-    public void delete(User user, Integer contactId) {
-        Contact contact = contactRepository.findFirstByUserAndId(user, contactId)
+    public void delete(UserPrincipal user, Integer contactId) {
+        Contact contact = contactRepository.findOwnedById(user.id(), contactId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Contact Not Found"));
 
         contactRepository.delete(contact);
     }
 
+    /**
+     * One page of matches ordered by id. With a text filter the total comes from
+     * {@code count(id) OVER ()} on the page query itself, as the matches are collected for the
+     * sort anyway. Without one the page query stops after {@code size + 1} index entries and a
+     * separate {@code count(*)} runs only when that extra row shows the page is not the last;
+     * a window there would buffer every contact of the user. {@code totals=false} never counts.
+     */
+    @Transactional(readOnly = true)
+    public Page<ContactResponse> search(UserPrincipal user, SearchContactRequest request) {
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize(), Sort.by("id"));
+        Specification<Contact> specification = searchSpecification(user, request);
+        boolean totals = !Boolean.FALSE.equals(request.getTotals());
+        boolean windowed = totals && (Objects.nonNull(request.getName())
+                || Objects.nonNull(request.getEmail())
+                || Objects.nonNull(request.getPhone()));
+
+        HibernateCriteriaBuilder builder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        JpaCriteriaQuery<Tuple> query = builder.createTupleQuery();
+        JpaRoot<Contact> root = query.from(Contact.class);
+        specification.toPredicate(root, query, builder);
+        if (windowed) {
+            query.multiselect(root, builder.windowFunction("count", Long.class, builder.createWindow(), root.get("id")));
+        } else {
+            query.multiselect(root);
+        }
+        query.orderBy(builder.asc(root.get("id")));
+
+        List<Tuple> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(windowed ? pageable.getPageSize() : pageable.getPageSize() + 1)
+                .getResultList();
+
+        long total;
+        if (windowed) {
+            // past the last page there is no row to carry the window count
+            total = rows.isEmpty()
+                    ? (pageable.getOffset() > 0 ? contactRepository.count(specification) : 0)
+                    : rows.getFirst().get(1, Long.class);
+        } else {
+            boolean hasNext = rows.size() > pageable.getPageSize();
+            if (hasNext) {
+                rows = rows.subList(0, pageable.getPageSize());
+            }
+
+            if (!totals) {
+                // not a real total, just enough for hasNext()
+                total = pageable.getOffset() + rows.size() + (hasNext ? 1 : 0);
+            } else if (hasNext || (rows.isEmpty() && pageable.getOffset() > 0)) {
+                total = contactRepository.count(specification);
+            } else {
+                total = pageable.getOffset() + rows.size();
+            }
+        }
+
+        List<ContactResponse> contactResponses = rows.stream()
+                .map(row -> toContactResponse(row.get(0, Contact.class)))
+                .toList();
+        if (request.isIncludeAddresses()) {
+            includeAddresses(contactResponses);
+        }
+
+        return new PageImpl<>(contactResponses, pageable, total);
+    }
+
+    @Transactional(readOnly = true)
+    public Window<ContactResponse> scroll(UserPrincipal user, SearchContactRequest request) {
+        KeysetScrollPosition position = ContactCursor.decode(request.getAfter());
+
+        Window<Contact> contacts = contactRepository.findBy(searchSpecification(user, request), query -> query
+                .sortBy(Sort.by("id"))
+                .limit(request.getSize())
+                .scroll(position));
+
+        Window<ContactResponse> contactResponses = contacts.map(this::toContactResponse);
+        if (request.isIncludeAddresses()) {
+            includeAddresses(contactResponses.getContent());
+        }
+        return contactResponses;
+    }
+
+    @Transactional(readOnly = true)
+    public long count(UserPrincipal user, SearchContactRequest request) {
+        return contactRepository.count(searchSpecification(user, request));
+    }
+
     @Transactional(readOnly = true)
-    public Page<ContactResponse> search(User user, SearchContactRequest request) {
-        Specification<Contact> specification = (root, query, builder) -> {
+    public void export(UserPrincipal user, boolean includeAddresses, OutputStream outputStream) throws IOException {
+        // also covers the addresses loaded per chunk
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+
+        List<Contact> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+        try (Stream<Contact> contacts = contactRepository.streamAllByUserIdOrderById(user.id())) {
+            Iterator<Contact> iterator = contacts.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    writeChunk(writer, generator, chunk, includeAddresses);
+                    chunk.clear();
+                    // keep the persistence context from growing with the contact book
+                    entityManager.clear();
+                }
+            }
+        }
+
+        generator.flush();
+    }
+
+    private void writeChunk(ObjectWriter writer, JsonGenerator generator, List<Contact> chunk, boolean includeAddresses) throws IOException {
+        List<ContactResponse> responses = chunk.stream().map(this::toContactResponse).toList();
+        if (includeAddresses) {
+            includeAddresses(responses);
+        }
+
+        for (ContactResponse response : responses) {
+            writer.writeValue(generator, response);
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    // one IN query for the addresses of every contact in the list, instead of one per contact
+    private void includeAddresses(List<ContactResponse> responses) {
+        if (responses.isEmpty()) {
+            return;
+        }
+
+        List<Long> contactIds = responses.stream().map(ContactResponse::getId).toList();
+        Map<Long, List<AddressResponse>> addresses = addressRepository.findAllByContactIdIn(contactIds).stream()
+                .collect(Collectors.groupingBy(address -> address.getContact().getId(),
+                        Collectors.mapping(addressService::toAddressResponse, Collectors.toList())));
+
+        for (ContactResponse response : responses) {
+            response.setAddresses(addresses.getOrDefault(response.getId(), List.of()));
+        }
+    }
+
+    private Specification<Contact> searchSpecification(UserPrincipal user, SearchContactRequest request) {
+        return (root, query, builder) -> {
             List<Predicate> predicates = new ArrayList<>();
-            predicates.add(builder.equal(root.get("user"), user));
+            predicates.add(builder.equal(root.get("user").get("id"), user.id()));
             if (Objects.nonNull(request.getName())){
                 predicates.add(builder.or(
-                        builder.like(root.get("firstName"), "%"+request.getName()+"%"),
-                        builder.like(root.get("lastName"), "%"+request.getName()+"%")
+                        builder.like(builder.lower(root.get("firstName")), contains(request.getName()), '\\'),
+                        builder.like(builder.lower(root.get("lastName")), contains(request.getName()), '\\')
                 ));
             }
             if (Objects.nonNull(request.getEmail())) {
-                predicates.add(builder.like(root.get("email"), "%"+request.getEmail()+"%"));
+                predicates.add(builder.like(builder.lower(root.get("email")), contains(request.getEmail()), '\\'));
             }
             if (Objects.nonNull(request.getPhone())) {
-                predicates.add(builder.like(root.get("phone"), "%"+request.getPhone()+"%"));
+                predicates.add(builder.like(builder.lower(root.get("phone")), contains(request.getPhone()), '\\'));
             }
 
             return query.where(predicates.toArray(new Predicate[]{})).getRestriction();
         };
+    }
 
-        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
-        Page<Contact> contacts = contactRepository.findAll(specification, pageable);
-        List<ContactResponse> contactResponses = contacts.getContent().stream()
-                .map(this::toContactResponse)
-                .toList();
-
-        return new PageImpl<>(contactResponses, pageable, contacts.getTotalElements());
+    // case-insensitive substring pattern, served by the trigram indexes on lower(column)
+    private String contains(String value) {
+        String escaped = value.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 
     private ContactResponse toContactResponse(Contact contact){
         return ContactResponse.builder()
+                .id(contact.getId())
                 .firstName(contact.getFirstName())
                 .lastName(contact.getLastName())
                 .email(contact.getEmail())
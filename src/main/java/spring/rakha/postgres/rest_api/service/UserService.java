@@ -8,14 +8,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 import spring.rakha.postgres.rest_api.entity.User;
 import spring.rakha.postgres.rest_api.model.RegisterUserRequest;
 import spring.rakha.postgres.rest_api.model.UpdateUserRequest;
 import spring.rakha.postgres.rest_api.model.UserResponse;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
-import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.PasswordHasher;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
 
 import java.util.Objects;
 import java.util.Set;
@@ -31,7 +33,16 @@ public class UserService {
     @Autowired
     private ValidationService validationService;
 
-    @Transactional
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // not transactional, so no pooled connection is held while the password is hashed
     public void register(RegisterUserRequest request){
         validationService.validate(request);
 
@@ -41,34 +52,52 @@ public class UserService {
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
+        user.setPassword(passwordHasher.hash(request.getPassword()));
         user.setName(request.getName());
 
         userRepository.save(user);
     }
 
-    public UserResponse get(User user){
+    public UserResponse get(UserPrincipal principal){
+        if (Objects.isNull(principal.name())) {
+            // signed tokens do not carry the name, it can change while the token is valid
+            User user = userRepository.findById(principal.id())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
+            return UserResponse.builder()
+                    .username(user.getUsername())
+                    .name(user.getName())
+                    .build();
+        }
+
         return UserResponse.builder()
-                .username(user.getUsername())
-                .name(user.getName())
+                .username(principal.username())
+                .name(principal.name())
                 .build();
     }
 
-    @Transactional
-    public UserResponse update(User user, UpdateUserRequest request) {
+    public UserResponse update(UserPrincipal principal, UpdateUserRequest request) {
         validationService.validate(request);
 
-        log.info(user.getName());
+        // hashed before the transaction opens, so no pooled connection is held meanwhile
+        String password = Objects.nonNull(request.getPassword()) ? passwordHasher.hash(request.getPassword()) : null;
 
-        if (Objects.nonNull(request.getName())) {
-            user.setName(request.getName());
-        }
+        User user = transactionTemplate.execute(status -> {
+            User current = userRepository.findById(principal.id())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unauthorized"));
 
-        if (Objects.nonNull(request.getPassword())) {
-            user.setPassword(BCrypt.hashpw(request.getPassword(), BCrypt.gensalt()));
-        }
+            log.info(current.getName());
 
-        userRepository.save(user);
+            if (Objects.nonNull(request.getName())) {
+                current.setName(request.getName());
+            }
+
+            if (Objects.nonNull(password)) {
+                current.setPassword(password);
+            }
+
+            return userRepository.save(current);
+        });
+        tokenCache.invalidateUser(user.getId());
 
         return UserResponse.builder()
                 .name(user.getName())
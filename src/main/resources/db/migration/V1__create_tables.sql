@@ -0,0 +1,34 @@
+CREATE TABLE IF NOT EXISTS users (
+    id bigserial NOT NULL,
+    username varchar NOT NULL,
+    "password" varchar NOT NULL,
+    "name" varchar NOT NULL,
+    "token" varchar NULL,
+    token_expired_at bigint NULL,
+    CONSTRAINT users_pk PRIMARY KEY (id),
+    CONSTRAINT users_un_username UNIQUE (username),
+    CONSTRAINT users_un_token UNIQUE ("token")
+);
+
+CREATE TABLE IF NOT EXISTS contacts (
+    id bigserial NOT NULL,
+    user_id bigint NOT NULL,
+    first_name varchar NOT NULL,
+    last_name varchar,
+    phone varchar,
+    email varchar,
+    CONSTRAINT contact_pk PRIMARY KEY (id),
+    FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS addresses (
+    id bigserial NOT NULL,
+    contact_id bigint NOT NULL,
+    street varchar,
+    city varchar,
+    province varchar,
+    country varchar NOT NULL,
+    postal_code varchar,
+    CONSTRAINT address_pk PRIMARY KEY (id),
+    FOREIGN KEY (contact_id) REFERENCES contacts (id)
+);
@@ -0,0 +1,8 @@
+-- ContactService.search matches lower(column) LIKE '%term%'; a leading wildcard cannot use a
+-- B-tree, but a trigram GIN index on the same lower() expression can.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS contacts_first_name_trgm_idx ON contacts USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS contacts_last_name_trgm_idx ON contacts USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS contacts_email_trgm_idx ON contacts USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS contacts_phone_trgm_idx ON contacts USING gin (lower(phone) gin_trgm_ops);
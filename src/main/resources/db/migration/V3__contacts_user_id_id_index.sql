@@ -0,0 +1,2 @@
+-- seek index for keyset paging: WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?
+CREATE INDEX IF NOT EXISTS contacts_user_id_id_idx ON contacts (user_id, id);
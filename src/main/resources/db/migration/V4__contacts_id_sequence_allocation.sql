@@ -0,0 +1,3 @@
+-- Contact ids come from a pooled sequence (allocationSize = 50) so Hibernate can batch inserts;
+-- plain nextval() callers such as the column default still get unique ids.
+ALTER SEQUENCE contacts_id_seq INCREMENT BY 50;
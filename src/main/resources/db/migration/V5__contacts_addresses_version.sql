@@ -0,0 +1,3 @@
+-- optimistic-lock version, also the source of the ETags on contact and address reads
+ALTER TABLE contacts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE addresses ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,4 @@
+-- foreign key index for addresses.contact_id: AddressRepository filters on it for a contact's
+-- addresses, the batch IN lookup and the list ETag, and deleting a contact checks it.
+-- contacts.user_id is covered by the leading column of contacts_user_id_id_idx (V3).
+CREATE INDEX IF NOT EXISTS addresses_contact_id_id_idx ON addresses (contact_id, id);
@@ -0,0 +1,7 @@
+-- signed tokens revoked before they expire, see TokenDenyList. A row is only needed until
+-- expired_at and is pruned on the next flush after that.
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id bigint NOT NULL,
+    expired_at bigint NOT NULL,
+    CONSTRAINT revoked_tokens_pk PRIMARY KEY (token_id)
+);
@@ -0,0 +1,23 @@
+-- one row per logged-in device instead of the single token on users, so a login neither
+-- logs out the user's other devices nor rewrites the users row every request reads.
+-- Only the SHA-256 of a token is stored; the unique constraint is the lookup index.
+CREATE TABLE IF NOT EXISTS sessions (
+    id bigserial NOT NULL,
+    user_id bigint NOT NULL,
+    token_hash bytea NOT NULL,
+    expired_at bigint NOT NULL,
+    CONSTRAINT sessions_pk PRIMARY KEY (id),
+    CONSTRAINT sessions_un_token_hash UNIQUE (token_hash),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- the user's expired sessions are deleted on login, and the foreign key is checked on user delete
+CREATE INDEX IF NOT EXISTS sessions_user_id_expired_at_idx ON sessions (user_id, expired_at);
+
+INSERT INTO sessions (user_id, token_hash, expired_at)
+SELECT id, sha256(convert_to("token", 'UTF8')), token_expired_at
+FROM users
+WHERE "token" IS NOT NULL AND token_expired_at IS NOT NULL;
+
+ALTER TABLE users DROP COLUMN IF EXISTS "token";
+ALTER TABLE users DROP COLUMN IF EXISTS token_expired_at;
@@ -0,0 +1,2 @@
+-- lets SessionSweeper find expired sessions of all users without scanning the live ones
+CREATE INDEX IF NOT EXISTS sessions_expired_at_idx ON sessions (expired_at);
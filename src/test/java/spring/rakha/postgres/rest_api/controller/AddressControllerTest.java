@@ -13,20 +13,29 @@ import org.springframework.test.web.servlet.MockMvc;
 import spring.rakha.postgres.rest_api.entity.Address;
 import spring.rakha.postgres.rest_api.entity.Contact;
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
 import spring.rakha.postgres.rest_api.model.AddressResponse;
 import spring.rakha.postgres.rest_api.model.CreateAddressRequest;
 import spring.rakha.postgres.rest_api.model.WebResponse;
 import spring.rakha.postgres.rest_api.repository.AddressRepository;
 import spring.rakha.postgres.rest_api.repository.ContactRepository;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
 import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.service.AddressService;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Slf4j
@@ -41,6 +50,9 @@ class AddressControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
     @Autowired
     private ContactRepository contactRepository;
 
@@ -50,8 +62,12 @@ class AddressControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenCache tokenCache;
+
     @BeforeEach
     void setUp() {
+        tokenCache.clear();
         addressRepository.deleteAll();
         contactRepository.deleteAll();
         userRepository.deleteAll();
@@ -60,10 +76,14 @@ class AddressControllerTest {
         user.setUsername("test");
         user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
         user.setName("Test");
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
         Contact contact = new Contact();
         contact.setFirstName("First Name");
         contact.setLastName("Last Name");
@@ -99,8 +119,7 @@ class AddressControllerTest {
 
     @Test
     void createAddressSuccess() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
         log.info("Check contact first id: {}",contacts.size());
 
         Long contactsFirstId = contacts.getFirst().getId();
@@ -153,8 +172,7 @@ class AddressControllerTest {
 
     @Test
     void getAddressAddressNotFound() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         mockMvc.perform(
                 get("/api/contacts/"+contacts.getFirst().getId()+"/addresses/"+99)
@@ -172,8 +190,7 @@ class AddressControllerTest {
 
     @Test
     void getAddressSuccess() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         Address address = new Address();
         address.setCountry("test country");
@@ -230,8 +247,7 @@ class AddressControllerTest {
 
     @Test
     void updateAddressAddressNotFound() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         CreateAddressRequest request = new CreateAddressRequest();
         request.setStreet("Some Street");
@@ -257,8 +273,7 @@ class AddressControllerTest {
 
     @Test
     void updateAddressSuccess() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         Address address = new Address();
         address.setCountry("test country");
@@ -315,8 +330,7 @@ class AddressControllerTest {
 
     @Test
     void deleteAddressAddressNotFound() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         mockMvc.perform(
                 delete("/api/contacts/"+contacts.getFirst().getId()+"/addresses/"+99)
@@ -334,8 +348,7 @@ class AddressControllerTest {
 
     @Test
     void deleteAddressSuccess() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         Address address = new Address();
         address.setCountry("test country");
@@ -378,8 +391,7 @@ class AddressControllerTest {
 
     @Test
     void listAddressSuccess() throws Exception {
-        User user = userRepository.findFirstByToken("test").orElseThrow();
-        List<Contact> contacts = user.getContacts();
+        List<Contact> contacts = contactRepository.findAll();
 
         Address address = new Address();
         address.setCountry("test country");
@@ -405,4 +417,165 @@ class AddressControllerTest {
             assertEquals(1, response.getData().size());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAddressNotModified() throws Exception {
+        Contact contact = contactRepository.findAll().getFirst();
+
+        Address address = new Address();
+        address.setCountry("test country");
+        address.setContact(contact);
+        addressRepository.save(address);
+
+        String etag = mockMvc.perform(
+                get("/api/contacts/" + contact.getId() + "/addresses/" + address.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get("/api/contacts/" + contact.getId() + "/addresses/" + address.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified()
+        );
+    }
+
+    @Test
+    void listAddressNotModifiedUntilAddressAdded() throws Exception {
+        Contact contact = contactRepository.findAll().getFirst();
+        String urlTemplate = "/api/contacts/" + contact.getId() + "/addresses";
+
+        String etag = mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isNotModified()
+        );
+
+        CreateAddressRequest request = new CreateAddressRequest();
+        request.setCountry("test country");
+        mockMvc.perform(
+                post(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .header("If-None-Match", etag)
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            assertNotEquals(etag, result.getResponse().getHeader("ETag"));
+
+            WebResponse<List<AddressResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(1, response.getData().size());
+        });
+    }
+
+    @Test
+    void batchListAddressSuccess() throws Exception {
+        Contact first = contactRepository.findAll().getFirst();
+
+        Contact second = new Contact();
+        second.setFirstName("Second");
+        second.setUser(first.getUser());
+        contactRepository.save(second);
+
+        for (int i = 0; i < 2; i++) {
+            Address address = new Address();
+            address.setCountry("country " + i);
+            address.setContact(first);
+            addressRepository.save(address);
+        }
+
+        mockMvc.perform(
+                get("/api/addresses")
+                        .queryParam("contactIds", second.getId() + "," + first.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<Map<Long, List<AddressResponse>>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+
+            assertEquals(List.of(second.getId(), first.getId()), List.copyOf(response.getData().keySet()));
+            assertEquals(0, response.getData().get(second.getId()).size());
+            assertEquals(2, response.getData().get(first.getId()).size());
+        });
+    }
+
+    @Test
+    void batchListAddressContactNotFound() throws Exception {
+        Contact contact = contactRepository.findAll().getFirst();
+
+        User other = new User();
+        other.setUsername("other");
+        other.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
+        other.setName("Other");
+        userRepository.save(other);
+
+        Contact foreign = new Contact();
+        foreign.setFirstName("Foreign");
+        foreign.setUser(other);
+        contactRepository.save(foreign);
+
+        mockMvc.perform(
+                get("/api/addresses")
+                        .queryParam("contactIds", contact.getId() + "," + foreign.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isNotFound()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+        });
+    }
+
+    @Test
+    void batchListAddressTooManyContacts() throws Exception {
+        String contactIds = LongStream.rangeClosed(1, AddressService.MAX_BATCH_CONTACTS + 1)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(
+                get("/api/addresses")
+                        .queryParam("contactIds", contactIds)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isBadRequest()
+        );
+    }
+}
@@ -10,11 +10,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
 import spring.rakha.postgres.rest_api.model.LoginUserRequest;
 import spring.rakha.postgres.rest_api.model.TokenResponse;
 import spring.rakha.postgres.rest_api.model.WebResponse;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
 import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.PasswordHasher;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.security.UserPrincipal;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -31,11 +40,21 @@ class AuthControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
     @BeforeEach
     void setUp() {
+        tokenCache.clear();
         userRepository.deleteAll();
     }
 
@@ -114,8 +133,106 @@ class AuthControllerTest {
 
             User userDb = userRepository.findOneByUsername("test").orElse(null);
             assertNotNull(userDb);
-            assertEquals(userDb.getToken(), response.getData().getToken());
-            assertEquals(userDb.getTokenExpiredAt(), response.getData().getExpiredAt());
+            UserPrincipal principal = userSessionRepository.findPrincipalByToken(response.getData().getToken()).orElse(null);
+            assertNotNull(principal);
+            assertEquals(userDb.getId(), principal.id());
+            assertEquals(response.getData().getExpiredAt(), principal.tokenExpiredAt());
+        });
+    }
+
+    @Test
+    void loginKeepsOtherSessions() throws Exception{
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        UserSession expired = new UserSession();
+        expired.setUser(user);
+        expired.setTokenHash(TokenHasher.hash("expired"));
+        expired.setExpiredAt(System.currentTimeMillis() - 10000000L);
+        userSessionRepository.save(expired);
+
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("test");
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            String content = mockMvc.perform(
+                    post("/api/auth/login")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request))
+            ).andExpectAll(
+                    status().isOk()
+            ).andReturn().getResponse().getContentAsString();
+
+            WebResponse<TokenResponse> response = objectMapper.readValue(content, new TypeReference<>() {
+            });
+            tokens.add(response.getData().getToken());
+        }
+
+        assertNotEquals(tokens.get(0), tokens.get(1));
+        for (String token : tokens) {
+            assertTrue(userSessionRepository.findPrincipalByToken(token).isPresent());
+        }
+        // the expired session was cleaned up by the logins
+        assertEquals(2, userSessionRepository.count());
+    }
+
+    @Test
+    void loginUpgradesPasswordCost() throws Exception{
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt(4)));
+        userRepository.save(user);
+
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("test");
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            User userDb = userRepository.findOneByUsername("test").orElse(null);
+            assertNotNull(userDb);
+            assertTrue(userDb.getPassword().startsWith(String.format("$2a$%02d$", passwordHasher.getLogRounds())));
+            assertTrue(BCrypt.checkpw("test", userDb.getPassword()));
+        });
+    }
+
+    @Test
+    void loginKeepsHigherPasswordCost() throws Exception{
+        String hashed = BCrypt.hashpw("test", BCrypt.gensalt(passwordHasher.getLogRounds() + 1));
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(hashed);
+        userRepository.save(user);
+
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("test");
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            User userDb = userRepository.findOneByUsername("test").orElse(null);
+            assertNotNull(userDb);
+            assertEquals(hashed, userDb.getPassword());
         });
     }
 
@@ -125,10 +242,14 @@ class AuthControllerTest {
         user.setName("Test");
         user.setUsername("test");
         user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
         mockMvc.perform(
                 delete("/api/auth/logout")
                         .accept(MediaType.APPLICATION_JSON)
@@ -143,8 +264,38 @@ class AuthControllerTest {
 
             User userDb = userRepository.findOneByUsername(user.getUsername()).orElse(null);
             assertNotNull(userDb);
-            assertNull(userDb.getToken());
-            assertNull(userDb.getTokenExpiredAt());
+            assertTrue(userSessionRepository.findPrincipalByToken("test").isEmpty());
         });
     }
+
+    @Test
+    void logoutInvalidatesCachedToken() throws Exception{
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt()));
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        mockMvc.perform(
+                delete("/api/auth/logout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                delete("/api/auth/logout")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import spring.rakha.postgres.rest_api.entity.Contact;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.model.ContactResponse;
+import spring.rakha.postgres.rest_api.model.WebResponse;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// MockMvc bypasses the servlet container, and compression is done by Tomcat
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CompressionTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword("rahasia");
+        user.setName("Test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        for (int i = 0; i < 100; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First Name " + i);
+            contact.setLastName("Last Name");
+            contact.setPhone("0821" + i);
+            contact.setEmail("contact" + i + "@example.com");
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+    }
+
+    @Test
+    void largeResponseIsGzipped() throws Exception {
+        HttpResponse<InputStream> response = client.send(request("/api/contacts?size=100", "gzip"), HttpResponse.BodyHandlers.ofInputStream());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+
+        try (InputStream body = new GZIPInputStream(response.body())) {
+            WebResponse<List<ContactResponse>> contacts = objectMapper.readValue(body, new TypeReference<>() {
+            });
+            assertEquals(100, contacts.getData().size());
+        }
+    }
+
+    @Test
+    void smallResponseIsNotCompressed() throws Exception {
+        HttpResponse<String> response = client.send(request("/api/users/current", "gzip"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    @Test
+    void notCompressedWithoutAcceptEncoding() throws Exception {
+        HttpResponse<String> response = client.send(request("/api/contacts?size=100", "identity"), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(response.body().contains("First Name 99"));
+    }
+
+    @Test
+    void blackbirdIsRegistered() {
+        assertTrue(objectMapper.getRegisteredModuleIds().stream()
+                .anyMatch(id -> id.toString().contains("Blackbird")));
+    }
+
+    private HttpRequest request(String path, String acceptEncoding) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", acceptEncoding)
+                .header("X-API-TOKEN", "test")
+                .build();
+    }
+}
@@ -10,15 +10,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import spring.rakha.postgres.rest_api.entity.Address;
 import spring.rakha.postgres.rest_api.entity.Contact;
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
 import spring.rakha.postgres.rest_api.model.ContactResponse;
 import spring.rakha.postgres.rest_api.model.CreateContactRequest;
+import spring.rakha.postgres.rest_api.model.ImportContactResponse;
 import spring.rakha.postgres.rest_api.model.WebResponse;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
 import spring.rakha.postgres.rest_api.repository.ContactRepository;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
 import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
 
 import java.util.List;
 
@@ -27,6 +35,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -39,14 +49,28 @@ class ContactControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private AddressRepository addressRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
+        tokenCache.clear();
+        addressRepository.deleteAll();
         contactRepository.deleteAll();
         userRepository.deleteAll();
 
@@ -54,10 +78,13 @@ class ContactControllerTest {
         user.setUsername("test");
         user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
         user.setName("Test");
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
-
         userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
     }
 
     @Test
@@ -130,10 +157,14 @@ class ContactControllerTest {
         user.setUsername("testGetContact");
         user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
         user.setName("Test");
-        user.setToken("testGetContact");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("testGetContact"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
 
         Contact contact = new Contact();
         contact.setFirstName("First Name");
@@ -164,6 +195,102 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void getContactNotModified() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+
+        Contact contact = new Contact();
+        contact.setFirstName("First Name");
+        contact.setLastName("Last Name");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        String urlTemplate = "/api/contacts/" + contact.getId();
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk(),
+                header().string("ETag", "\"0\"")
+        );
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .header("If-None-Match", "\"0\"")
+        ).andExpectAll(
+                status().isNotModified(),
+                header().string("ETag", "\"0\""),
+                content().string("")
+        );
+
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Updated");
+        mockMvc.perform(
+                put(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .header("If-None-Match", "\"0\"")
+        ).andExpectAll(
+                status().isOk(),
+                header().string("ETag", "\"1\"")
+        ).andDo(result -> {
+            WebResponse<ContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals("Updated", response.getData().getFirstName());
+        });
+    }
+
+    @Test
+    void getContactAfterDelete() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+
+        Contact contact = new Contact();
+        contact.setFirstName("First Name");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        String urlTemplate = "/api/contacts/" + contact.getId();
+
+        // the first read leaves the contact in the second-level cache
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                delete(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get(urlTemplate)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isNotFound()
+        );
+    }
+
     @Test
     void updateContactNotFound() throws Exception {
         CreateContactRequest request = new CreateContactRequest();
@@ -193,10 +320,14 @@ class ContactControllerTest {
         user.setUsername("testUpdateContact");
         user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
         user.setName("Test");
-        user.setToken("testUpdateContact");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("testUpdateContact"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
 
         Contact contact = new Contact();
         contact.setFirstName("First Name");
@@ -234,6 +365,42 @@ class ContactControllerTest {
         });
     }
 
+    @Test
+    void updateContactConflict() throws Exception {
+        Contact contact = new Contact();
+        contact.setFirstName("First Name");
+        contact.setUser(userRepository.findOneByUsername("test").orElseThrow());
+        contactRepository.save(contact);
+
+        mockMvc.perform(
+                get("/api/contacts/" + contact.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // another writer moves the row on while this instance still caches the old version
+        jdbcTemplate.update("update contacts set version = version + 1 where id = ?", contact.getId());
+
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("first test");
+
+        mockMvc.perform(
+                put("/api/contacts/" + contact.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isConflict()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+        });
+    }
+
     @Test
     void deleteContactNotFound() throws Exception {
         mockMvc.perform(
@@ -256,10 +423,14 @@ class ContactControllerTest {
         user.setUsername("testDeleteContact");
         user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
         user.setName("Test");
-        user.setToken("testDeleteContact");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("testDeleteContact"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
 
         Contact contact = new Contact();
         contact.setFirstName("First Name");
@@ -304,4 +475,414 @@ class ContactControllerTest {
             assertEquals(10, response.getPaging().getSize());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchSuccess() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        for (int i = 0; i < 15; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First " + i);
+            contact.setLastName("Last");
+            contact.setPhone("0821" + i);
+            contact.setEmail("first" + i + "@example.com");
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("name", "fIRST")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(10, response.getData().size());
+            assertEquals(2, response.getPaging().getTotalPage());
+            assertEquals(0, response.getPaging().getCurrentPage());
+            assertEquals(10, response.getPaging().getSize());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("email", "FIRST1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(6, response.getData().size());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("phone", "%")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(0, response.getData().size());
+        });
+    }
+
+    @Test
+    void searchWithAddresses() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        for (int i = 0; i < 3; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First " + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+
+            for (int j = 0; j < i; j++) {
+                Address address = new Address();
+                address.setCountry("Country " + j);
+                address.setContact(contact);
+                addressRepository.save(address);
+            }
+        }
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("include", "addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(3, response.getData().size());
+            for (ContactResponse contact : response.getData()) {
+                int expected = Integer.parseInt(contact.getFirstName().substring("First ".length()));
+                assertEquals(expected, contact.getAddresses().size());
+            }
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("after", "")
+                        .queryParam("include", "addresses")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(3, response.getData().size());
+            assertTrue(response.getData().stream().allMatch(contact -> contact.getAddresses() != null));
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertTrue(response.getData().stream().allMatch(contact -> contact.getAddresses() == null));
+        });
+    }
+
+    @Test
+    void searchWithCursor() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        for (int i = 0; i < 15; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First " + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        String after = mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("after", "")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andReturn().getResponse().getContentAsString();
+
+        WebResponse<List<ContactResponse>> firstPage = objectMapper.readValue(after, new TypeReference<>() {
+        });
+        assertNull(firstPage.getErrors());
+        assertEquals(10, firstPage.getData().size());
+        assertEquals("First 0", firstPage.getData().getFirst().getFirstName());
+        assertNotNull(firstPage.getPaging().getAfter());
+        assertNull(firstPage.getPaging().getTotalPage());
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("after", firstPage.getPaging().getAfter())
+                        .queryParam("totals", "true")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(5, response.getData().size());
+            assertEquals("First 10", response.getData().getFirst().getFirstName());
+            assertNull(response.getPaging().getAfter());
+            assertEquals(2, response.getPaging().getTotalPage());
+        });
+    }
+
+    @Test
+    void searchTotals() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        for (int i = 0; i < 15; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First " + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(10, response.getData().size());
+            assertEquals(2, response.getPaging().getTotalPage());
+            assertTrue(response.getPaging().getHasNext());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("totals", "false")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(10, response.getData().size());
+            assertEquals("First 0", response.getData().getFirst().getFirstName());
+            assertNull(response.getPaging().getTotalPage());
+            assertTrue(response.getPaging().getHasNext());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("totals", "false")
+                        .queryParam("page", "1")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(5, response.getData().size());
+            assertFalse(response.getPaging().getHasNext());
+        });
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("page", "3")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<List<ContactResponse>> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(0, response.getData().size());
+            assertEquals(2, response.getPaging().getTotalPage());
+        });
+    }
+
+    @Test
+    void searchWithInvalidCursor() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("after", "not a cursor")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+        });
+    }
+
+    @Test
+    void exportContacts() throws Exception {
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        for (int i = 0; i < 3; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("First " + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+
+            Address address = new Address();
+            address.setCountry("Country " + i);
+            address.setContact(contact);
+            addressRepository.save(address);
+        }
+
+        mockMvc.perform(
+                get("/api/contacts/export")
+                        .queryParam("include", "addresses")
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            assertEquals("application/x-ndjson", result.getResponse().getContentType());
+
+            String[] lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(3, lines.length);
+            for (int i = 0; i < lines.length; i++) {
+                ContactResponse response = objectMapper.readValue(lines[i], ContactResponse.class);
+                assertEquals("First " + i, response.getFirstName());
+                assertEquals(1, response.getAddresses().size());
+                assertEquals("Country " + i, response.getAddresses().getFirst().getCountry());
+            }
+        });
+
+        mockMvc.perform(
+                get("/api/contacts/export")
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            String[] lines = result.getResponse().getContentAsString().split("\n");
+            assertEquals(3, lines.length);
+            assertNull(objectMapper.readValue(lines[0], ContactResponse.class).getAddresses());
+        });
+    }
+
+    @Test
+    void importContactsJson() throws Exception {
+        CreateContactRequest valid = new CreateContactRequest();
+        valid.setFirstName("Imported");
+        valid.setEmail("imported@example.com");
+        CreateContactRequest invalid = new CreateContactRequest();
+        invalid.setEmail("salah");
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(valid, invalid, valid)))
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ImportContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNull(response.getErrors());
+            assertEquals(2, response.getData().getImported());
+            assertEquals(1, response.getData().getErrors().size());
+            assertEquals(2, response.getData().getErrors().getFirst().getRow());
+
+            assertEquals(2, contactRepository.count());
+        });
+    }
+
+    @Test
+    void importContactsNdjson() throws Exception {
+        String content = """
+                {"firstName": "First 1", "phone": "0811"}
+                {"firstName": "First 2"}
+                """;
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType("application/x-ndjson")
+                        .content(content)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ImportContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(2, response.getData().getImported());
+            assertTrue(response.getData().getErrors().isEmpty());
+
+            Contact contact = contactRepository.findAll().stream()
+                    .filter(c -> "First 1".equals(c.getFirstName()))
+                    .findFirst().orElseThrow();
+            assertEquals("0811", contact.getPhone());
+            assertEquals(userRepository.findOneByUsername("test").orElseThrow().getId(), contact.getUser().getId());
+        });
+    }
+
+    @Test
+    void importContactsCsv() throws Exception {
+        String content = """
+                firstName,lastName,email,phone
+                Budi,Santoso,budi@example.com,0812
+                ,Tanpa Nama,,
+                Siti,,,
+                """;
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType("text/csv")
+                        .content(content)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<ImportContactResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertEquals(2, response.getData().getImported());
+            assertEquals(1, response.getData().getErrors().size());
+            assertEquals(2, response.getData().getErrors().getFirst().getRow());
+
+            Contact contact = contactRepository.findAll().stream()
+                    .filter(c -> "Siti".equals(c.getFirstName()))
+                    .findFirst().orElseThrow();
+            assertNull(contact.getLastName());
+        });
+    }
+
+    @Test
+    void importContactsInvalidBody() throws Exception {
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"firstName\": \"Valid\"}, {\"firstName\": ")
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isBadRequest()
+        ).andDo(result -> {
+            WebResponse<String> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+            assertNotNull(response.getErrors());
+
+            assertEquals(0, contactRepository.count());
+        });
+    }
+}
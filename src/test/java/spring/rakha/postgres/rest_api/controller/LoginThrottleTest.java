@@ -0,0 +1,166 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.model.LoginUserRequest;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.LoginThrottle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "app.login-throttle.max-per-username=3",
+        "app.login-throttle.max-per-source=5"
+})
+@AutoConfigureMockMvc
+class LoginThrottleTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle.clear();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt(4)));
+        userRepository.save(user);
+    }
+
+    @Test
+    void usernameThrottledBeforeHashing() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(
+                    login("10.0.0." + i, "test", "salah")
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+
+        Timer hashes = meterRegistry.get("password.hasher.hash").timer();
+        long hashesBefore = hashes.count();
+        double rejectionsBefore = meterRegistry.get("login.throttle.rejections").tag("by", "username").functionCounter().count();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // refused even with the right password and from a fresh source, without running BCrypt
+        // or taking a pooled connection
+        mockMvc.perform(
+                login("10.0.0.9", "test", "rahasia")
+        ).andExpectAll(
+                status().isTooManyRequests()
+        );
+
+        assertEquals(hashesBefore, hashes.count());
+        assertEquals(0, statistics.getConnectCount());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(rejectionsBefore + 1, meterRegistry.get("login.throttle.rejections").tag("by", "username").functionCounter().count());
+    }
+
+    @Test
+    void successResetsUsername() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(
+                    login("10.0.1." + i, "test", "salah")
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+
+        mockMvc.perform(
+                login("10.0.1.2", "test", "rahasia")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        for (int i = 3; i < 6; i++) {
+            mockMvc.perform(
+                    login("10.0.1." + i, "test", "salah")
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+    }
+
+    @Test
+    void sourceThrottled() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(
+                    login("10.0.2.1", "unknown-" + i, "salah")
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+
+        mockMvc.perform(
+                login("10.0.2.1", "test", "rahasia")
+        ).andExpectAll(
+                status().isTooManyRequests()
+        );
+
+        mockMvc.perform(
+                login("10.0.2.2", "test", "rahasia")
+        ).andExpectAll(
+                status().isOk()
+        );
+    }
+
+    private MockHttpServletRequestBuilder login(String source, String username, String password) throws Exception {
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername(username);
+        request.setPassword(password);
+
+        return post("/api/auth/login")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request))
+                .with(servletRequest -> {
+                    servletRequest.setRemoteAddr(source);
+                    return servletRequest;
+                });
+    }
+}
@@ -0,0 +1,116 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.model.LoginUserRequest;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt(4)));
+        user.setName("Test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+    }
+
+    @Test
+    void prometheusScrape() throws Exception {
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("rahasia");
+
+        mockMvc.perform(
+                post("/api/auth/login")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/contacts")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "unknown")
+        ).andExpectAll(
+                status().isUnauthorized()
+        );
+
+        mockMvc.perform(
+                get("/actuator/prometheus")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            String scrape = result.getResponse().getContentAsString();
+
+            // buckets, so p50/p99 come from histogram_quantile() on the Prometheus side
+            assertTrue(scrape.contains("http_server_requests_seconds_bucket{"));
+            assertTrue(scrape.contains("status=\"200\",uri=\"/api/auth/login\",le="));
+            assertTrue(scrape.contains("status=\"401\",uri=\"/api/contacts\",le="));
+            assertTrue(scrape.contains("hikaricp_connections_active"));
+            assertTrue(scrape.contains("hibernate_statements_total"));
+            assertTrue(scrape.contains("password_hasher_hash_seconds{quantile=\"0.99\"}"));
+            assertTrue(scrape.contains("password_hasher_queue"));
+            assertTrue(scrape.contains("token_cache_requests_total"));
+            assertTrue(scrape.contains("session_sweeper_swept_rows_count"));
+            assertTrue(scrape.contains("token_cache_requests_total{result=\"unknown\"}"));
+            assertTrue(scrape.contains("unauthorized_limiter_rejections_total"));
+            assertTrue(scrape.contains("login_throttle_rejections_total{by=\"username\"}"));
+            assertTrue(scrape.contains("hibernate_second_level_cache_hit_ratio{region=\"contact\"}"));
+            assertTrue(scrape.contains("hibernate_second_level_cache_hit_ratio{region=\"address\"}"));
+        });
+    }
+}
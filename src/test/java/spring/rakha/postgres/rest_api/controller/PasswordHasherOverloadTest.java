@@ -0,0 +1,104 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.model.LoginUserRequest;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.PasswordHasher;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest(properties = {
+        "app.password-hasher.threads=1",
+        "app.password-hasher.queue-capacity=0"
+})
+@AutoConfigureMockMvc
+class PasswordHasherOverloadTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setName("Test");
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("test", BCrypt.gensalt(12)));
+        userRepository.save(user);
+    }
+
+    @Test
+    void loginBurstIsRejectedWhenHasherIsFull() throws Exception {
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("salah");
+        String content = objectMapper.writeValueAsString(request);
+
+        long rejectionsBefore = passwordHasher.getRejections();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                statuses.add(clients.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(
+                            post("/api/auth/login")
+                                    .accept(MediaType.APPLICATION_JSON)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(content)
+                    ).andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+
+            int unauthorized = 0;
+            int tooManyRequests = 0;
+            for (Future<Integer> status : statuses) {
+                switch (status.get()) {
+                    case 401 -> unauthorized++;
+                    case 429 -> tooManyRequests++;
+                    default -> fail("unexpected status " + status.get());
+                }
+            }
+
+            assertTrue(unauthorized >= 1);
+            assertTrue(tooManyRequests >= 1);
+            assertEquals(tooManyRequests, passwordHasher.getRejections() - rejectionsBefore);
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import spring.rakha.postgres.rest_api.entity.Address;
+import spring.rakha.postgres.rest_api.entity.Contact;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.model.CreateContactRequest;
+import spring.rakha.postgres.rest_api.model.LoginUserRequest;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.PasswordHasher;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Contact contact;
+
+    private Address address;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword(BCrypt.hashpw("rahasia", BCrypt.gensalt()));
+        user.setName("Test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        for (int i = 0; i < 10; i++) {
+            contact = new Contact();
+            contact.setFirstName("First Name " + i);
+            contact.setLastName("Last Name");
+            contact.setPhone("0928375");
+            contact.setEmail("something@example.com");
+            contact.setUser(user);
+            contactRepository.save(contact);
+
+            for (int j = 0; j < 2; j++) {
+                address = new Address();
+                address.setCountry("Indonesia");
+                address.setCity("Some City");
+                address.setContact(contact);
+                addressRepository.save(address);
+            }
+        }
+
+        // counts below are for a cold second-level cache
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void getCurrentUser() throws Exception {
+        assertStatements(1, get("/api/users/current"));
+    }
+
+    @Test
+    void login() throws Exception {
+        // already at the current cost, so the password is not rehashed
+        User user = userRepository.findOneByUsername("test").orElseThrow();
+        user.setPassword(passwordHasher.hash("rahasia"));
+        userRepository.save(user);
+
+        LoginUserRequest request = new LoginUserRequest();
+        request.setUsername("test");
+        request.setPassword("rahasia");
+
+        // the user, the cleanup of its expired sessions and the new session; no users update
+        assertStatements(3, post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    @Test
+    void getContact() throws Exception {
+        // the ETag lookup loads the contact, the read itself is served from the second-level cache
+        assertStatements(2, get("/api/contacts/" + contact.getId()));
+    }
+
+    @Test
+    void getContactFromSecondLevelCache() throws Exception {
+        mockMvc.perform(get("/api/contacts/" + contact.getId()).header("X-API-TOKEN", "test"));
+
+        // the caller is in the token cache and the contact in the second-level cache
+        assertStatements(0, get("/api/contacts/" + contact.getId()));
+    }
+
+    @Test
+    void updateContact() throws Exception {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("first test");
+
+        assertStatements(3, put("/api/contacts/" + contact.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    @Test
+    void searchContacts() throws Exception {
+        // the caller and the page query; its size + 1 probe finds no eleventh contact, so no count
+        assertStatements(2, get("/api/contacts"));
+    }
+
+    @Test
+    void searchContactsWithAddresses() throws Exception {
+        // one more query for the addresses of the whole page
+        assertStatements(3, get("/api/contacts").queryParam("include", "addresses"));
+    }
+
+    @Test
+    void scrollContacts() throws Exception {
+        assertStatements(2, get("/api/contacts").queryParam("after", ""));
+    }
+
+    @Test
+    void getAddress() throws Exception {
+        assertStatements(3, get("/api/contacts/" + contact.getId() + "/addresses/" + address.getId()));
+    }
+
+    @Test
+    void listAddresses() throws Exception {
+        // the caller, the contact for the ETag, the ETag aggregate and the contact with its addresses
+        assertStatements(4, get("/api/contacts/" + contact.getId() + "/addresses")
+                .contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void batchListAddresses() throws Exception {
+        String contactIds = contactRepository.findAll().stream()
+                .map(contact -> String.valueOf(contact.getId()))
+                .collect(Collectors.joining(","));
+
+        // the caller, one ownership count and one IN query for all ten contacts
+        assertStatements(3, get("/api/addresses").queryParam("contactIds", contactIds));
+    }
+
+    @Test
+    void getContactNotModified() throws Exception {
+        String etag = mockMvc.perform(
+                get("/api/contacts/" + contact.getId())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andReturn().getResponse().getHeader("ETag");
+
+        // the version comes from the second-level cache and the body is never built
+        assertStatements(0, HttpStatus.NOT_MODIFIED, get("/api/contacts/" + contact.getId())
+                .header("If-None-Match", etag));
+    }
+
+    @Test
+    void unknownTokenNotQueriedAgain() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (long expected : new long[]{1, 0}) {
+            statistics.clear();
+
+            mockMvc.perform(
+                    get("/api/users/current")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("X-API-TOKEN", "unknown")
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+
+            // the retry is answered from the negative cache
+            assertEquals(expected, statistics.getPrepareStatementCount());
+        }
+    }
+
+    @Test
+    void exportDoesNotFillSecondLevelCache() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(
+                get("/api/contacts/export")
+                        .queryParam("include", "addresses")
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+    }
+
+    @Test
+    void importDoesNotFillSecondLevelCache() throws Exception {
+        CreateContactRequest request = new CreateContactRequest();
+        request.setFirstName("Imported");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(
+                post("/api/contacts/import")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(request, request)))
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        assertEquals(0, statistics.getSecondLevelCachePutCount());
+    }
+
+    private void assertStatements(long expected, MockHttpServletRequestBuilder request) throws Exception {
+        assertStatements(expected, HttpStatus.OK, request);
+    }
+
+    private void assertStatements(long expected, HttpStatus expectedStatus, MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(
+                request
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().is(expectedStatus.value())
+        );
+
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+}
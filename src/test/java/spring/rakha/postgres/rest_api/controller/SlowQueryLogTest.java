@@ -0,0 +1,115 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import spring.rakha.postgres.rest_api.entity.Contact;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.jdbc.SlowQueryLog;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.slow-query.threshold=0")
+@AutoConfigureMockMvc
+class SlowQueryLogTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(SlowQueryLog.class);
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword("rahasia");
+        user.setName("Test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        for (int i = 0; i < 3; i++) {
+            Contact contact = new Contact();
+            contact.setFirstName("Budi " + i);
+            contact.setUser(user);
+            contactRepository.save(contact);
+        }
+
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void logsStatementsOverThreshold() throws Exception {
+        mockMvc.perform(
+                get("/api/contacts")
+                        .queryParam("name", "budi")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        List<String> lines = appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        String select = lines.stream()
+                .filter(line -> line.contains("sql=\"select") && line.contains("from contacts") && line.contains(" over"))
+                .findFirst().orElseThrow();
+
+        assertTrue(select.startsWith("duration_ms="));
+        assertTrue(select.contains("rows=3 "));
+        assertTrue(select.contains("endpoint=\"GET /api/contacts\""));
+        assertTrue(select.contains("params=\"(Long, String, String, Integer, Integer)\""));
+        assertFalse(select.contains("%budi%"));
+    }
+}
@@ -0,0 +1,111 @@
+package spring.rakha.postgres.rest_api.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
+import spring.rakha.postgres.rest_api.security.UnauthorizedLimiter;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "app.unauthorized-limit.max-failures=3")
+@AutoConfigureMockMvc
+class UnauthorizedLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private TokenCache tokenCache;
+
+    @Autowired
+    private UnauthorizedLimiter unauthorizedLimiter;
+
+    @BeforeEach
+    void setUp() {
+        tokenCache.clear();
+        unauthorizedLimiter.clear();
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        User user = new User();
+        user.setUsername("test");
+        user.setPassword("rahasia");
+        user.setName("Test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+    }
+
+    @Test
+    void tooManyUnauthorized() throws Exception {
+        mockMvc.perform(
+                currentUser("10.0.0.2", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        // max-failures=3: three 401s are answered
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(
+                    currentUser("10.0.0.1", "wrong-" + i)
+            ).andExpectAll(
+                    status().isUnauthorized()
+            );
+        }
+
+        // the next bad token from the client is refused without a lookup
+        mockMvc.perform(
+                currentUser("10.0.0.1", "wrong-3")
+        ).andExpectAll(
+                status().isTooManyRequests()
+        );
+
+        // a valid token from the same address is still served, here from the token cache
+        mockMvc.perform(
+                currentUser("10.0.0.1", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+    }
+
+    private MockHttpServletRequestBuilder currentUser(String client, String token) {
+        return get("/api/users/current")
+                .accept(MediaType.APPLICATION_JSON)
+                .header("X-API-TOKEN", token)
+                .with(request -> {
+                    request.setRemoteAddr(client);
+                    return request;
+                });
+    }
+}
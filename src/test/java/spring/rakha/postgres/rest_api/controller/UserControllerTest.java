@@ -11,12 +11,16 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.entity.UserSession;
 import spring.rakha.postgres.rest_api.model.RegisterUserRequest;
 import spring.rakha.postgres.rest_api.model.UpdateUserRequest;
 import spring.rakha.postgres.rest_api.model.UserResponse;
 import spring.rakha.postgres.rest_api.model.WebResponse;
 import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
 import spring.rakha.postgres.rest_api.security.BCrypt;
+import spring.rakha.postgres.rest_api.security.TokenCache;
+import spring.rakha.postgres.rest_api.security.TokenHasher;
 
 import java.util.Optional;
 
@@ -36,11 +40,18 @@ class UserControllerTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TokenCache tokenCache;
+
     @BeforeEach
     void setUp() {
+        tokenCache.clear();
         userRepository.deleteAll();
     }
 
@@ -152,10 +163,14 @@ class UserControllerTest {
         User user = new User();
         user.setUsername("test");
         user.setName("test");
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() - 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() - 10000000L);
+        userSessionRepository.save(session);
+
         mockMvc.perform(
                 get("/api/users/current")
                         .accept(MediaType.APPLICATION_JSON)
@@ -175,10 +190,14 @@ class UserControllerTest {
         User user = new User();
         user.setUsername("test");
         user.setName("test");
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
 
         mockMvc.perform(
                 get("/api/users/current")
@@ -220,10 +239,14 @@ class UserControllerTest {
         User user = new User();
         user.setUsername("test");
         user.setName("test");
-        user.setToken("test");
-        user.setTokenExpiredAt(System.currentTimeMillis() + 10000000L);
         userRepository.save(user);
 
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
         UpdateUserRequest request = new UpdateUserRequest();
         request.setName("test2");
         request.setPassword("test123");
@@ -249,4 +272,82 @@ class UserControllerTest {
             assertTrue(BCrypt.checkpw("test123", userDb.getPassword()));
         });
     }
+
+    @Test
+    void getUserServedFromTokenCache() throws Exception {
+        User user = new User();
+        user.setUsername("test");
+        user.setName("test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        long misses = tokenCache.getMisses();
+        long hits = tokenCache.getHits();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(
+                    get("/api/users/current")
+                            .accept(MediaType.APPLICATION_JSON)
+                            .header("X-API-TOKEN", "test")
+            ).andExpectAll(
+                    status().isOk()
+            );
+        }
+
+        assertEquals(misses + 1, tokenCache.getMisses());
+        assertEquals(hits + 2, tokenCache.getHits());
+    }
+
+    @Test
+    void getUserAfterUpdateNotStale() throws Exception {
+        User user = new User();
+        user.setUsername("test");
+        user.setName("test");
+        userRepository.save(user);
+
+        UserSession session = new UserSession();
+        session.setUser(user);
+        session.setTokenHash(TokenHasher.hash("test"));
+        session.setExpiredAt(System.currentTimeMillis() + 10000000L);
+        userSessionRepository.save(session);
+
+        mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        UpdateUserRequest request = new UpdateUserRequest();
+        request.setName("test2");
+
+        mockMvc.perform(
+                patch("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request))
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        );
+
+        mockMvc.perform(
+                get("/api/users/current")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header("X-API-TOKEN", "test")
+        ).andExpectAll(
+                status().isOk()
+        ).andDo(result -> {
+            WebResponse<UserResponse> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+            });
+
+            assertEquals("test2", response.getData().getName());
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package spring.rakha.postgres.rest_api.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The hot lookups against a table large enough that the planner would rather scan than use a
+ * missing index. Each statement has the shape Hibernate generates for the repository method.
+ */
+@SpringBootTest
+class QueryPlanTest {
+
+    private static final int USERS = 1000;
+
+    private static final int CONTACTS_PER_USER = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userId;
+
+    private long contactId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("""
+                insert into users (username, password, name)
+                select 'plan-' || u, 'rahasia', 'Plan' from generate_series(1, ?) u
+                """, USERS);
+        jdbcTemplate.update("""
+                insert into sessions (user_id, token_hash, expired_at)
+                select u.id, sha256(convert_to(u.username || '-' || i, 'UTF8')), i from users u, generate_series(1, 2) i
+                where u.username like 'plan-%'
+                """);
+        jdbcTemplate.update("""
+                insert into contacts (user_id, first_name, last_name, email, phone)
+                select u.id, md5(i::text), md5((i * 7)::text), md5((i * 13)::text) || '@example.com', (i * 31)::text
+                from users u, generate_series(1, ?) i
+                where u.username like 'plan-%'
+                """, CONTACTS_PER_USER);
+        jdbcTemplate.update("""
+                insert into addresses (contact_id, country)
+                select c.id, 'Indonesia' from contacts c, generate_series(1, 2)
+                where c.user_id in (select id from users where username like 'plan-%')
+                """);
+        jdbcTemplate.execute("analyze users");
+        jdbcTemplate.execute("analyze sessions");
+        jdbcTemplate.execute("analyze contacts");
+        jdbcTemplate.execute("analyze addresses");
+
+        userId = jdbcTemplate.queryForObject("select id from users where username = 'plan-1'", Long.class);
+        contactId = jdbcTemplate.queryForObject("select max(id) from contacts where user_id = ?", Long.class, userId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from addresses where contact_id in (select c.id from contacts c join users u on u.id = c.user_id where u.username like 'plan-%')");
+        jdbcTemplate.update("delete from contacts where user_id in (select id from users where username like 'plan-%')");
+        jdbcTemplate.update("delete from users where username like 'plan-%'");
+    }
+
+    @Test
+    void sessionLookup() {
+        assertIndexScan("sessions_un_token_hash",
+                "select u.id, u.username, u.name, s.expired_at from sessions s join users u on u.id = s.user_id"
+                        + " where s.token_hash = sha256(convert_to('plan-1-1', 'UTF8'))");
+        assertIndexScan("sessions_user_id_expired_at_idx",
+                "delete from sessions where user_id = " + userId + " and expired_at < 2");
+        assertIndexScan("sessions_expired_at_idx",
+                "select id from sessions where expired_at < 2 order by expired_at limit 1000 for update skip locked");
+    }
+
+    @Test
+    void contactsOfUser() {
+        assertIndexScan("contacts_user_id_id_idx",
+                "select * from contacts where user_id = " + userId + " order by id offset 0 rows fetch first 11 rows only");
+        assertIndexScan("contacts_user_id_id_idx",
+                "select * from contacts where user_id = " + userId + " and id > " + contactId / 2 + " order by id fetch first 10 rows only");
+        assertIndexScan("contacts_user_id_id_idx", "select count(*) from contacts where user_id = " + userId);
+    }
+
+    @Test
+    void contactSearch() {
+        String plan = explain("select *, count(id) over () from contacts where user_id = " + userId
+                + " and (lower(first_name) like '%7f3e%' or lower(last_name) like '%7f3e%') order by id fetch first 10 rows only");
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    @Test
+    void addressesOfContact() {
+        assertIndexScan("addresses_contact_id_id_idx", "select * from addresses where contact_id = " + contactId);
+        assertIndexScan("addresses_contact_id_id_idx",
+                "select * from addresses where contact_id in (" + contactId + ", " + (contactId - 1) + ", " + (contactId - 2) + ")");
+        assertIndexScan("addresses_contact_id_id_idx",
+                "select count(id), max(id), sum(version) from addresses where contact_id = " + contactId);
+    }
+
+    private void assertIndexScan(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    private String explain(String sql) {
+        List<String> plan = jdbcTemplate.queryForList("explain " + sql, String.class);
+        return String.join("\n", plan);
+    }
+}
@@ -0,0 +1,72 @@
+package spring.rakha.postgres.rest_api.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptTest {
+
+    @Test
+    void matchesCompatibilityCorpus() throws Exception {
+        // password (base64) and hash as produced by the original per-call engine,
+        // covering $2$, $2a$, $2b$, $2x$ and $2y$ and sign-extension passwords
+        List<String[]> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Objects.requireNonNull(getClass().getResourceAsStream("/bcrypt/compatibility.tsv")),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                corpus.add(line.split("\t"));
+            }
+        }
+        assertFalse(corpus.isEmpty());
+
+        for (String[] entry : corpus) {
+            byte[] password = Base64.getDecoder().decode(entry[0]);
+            String hashed = entry[1];
+
+            assertEquals(hashed, BCrypt.hashpw(password, hashed));
+            assertTrue(BCrypt.checkpw(password, hashed));
+        }
+    }
+
+    @Test
+    void matchesOpenwallVectors() {
+        assertEquals("$2a$05$CCCCCCCCCCCCCCCCCCCCC.E5YPO9kmyuRGyh0XouQYb4YMJKvyOeW",
+                BCrypt.hashpw("U*U", "$2a$05$CCCCCCCCCCCCCCCCCCCCC."));
+
+        byte[] signExtended = {(byte) 0xff, (byte) 0xff, (byte) 0xa3};
+        assertEquals("$2x$05$/OK.fbVrR/bpIqNJ5ianF.CE5elHaaO4EbggVDjb8P19RukzXSM3e",
+                BCrypt.hashpw(signExtended, "$2x$05$/OK.fbVrR/bpIqNJ5ianF."));
+        assertEquals("$2a$05$/OK.fbVrR/bpIqNJ5ianF.nqd1wy.pTMdcvrRWxyiGL2eMz.2a85.",
+                BCrypt.hashpw(signExtended, "$2a$05$/OK.fbVrR/bpIqNJ5ianF."));
+        assertEquals("$2b$05$/OK.fbVrR/bpIqNJ5ianF.CE5elHaaO4EbggVDjb8P19RukzXSM3e",
+                BCrypt.hashpw(signExtended, "$2b$05$/OK.fbVrR/bpIqNJ5ianF."));
+    }
+
+    @Test
+    void checkpwRejectsWrongPassword() {
+        String hashed = BCrypt.hashpw("rahasia", BCrypt.gensalt(4));
+
+        assertTrue(BCrypt.checkpw("rahasia", hashed));
+        assertFalse(BCrypt.checkpw("rahasia ", hashed));
+        assertFalse(BCrypt.checkpw("", hashed));
+    }
+
+    @Test
+    void passwordArrayIsNotModified() {
+        byte[] password = "rahasia".getBytes(StandardCharsets.UTF_8);
+
+        BCrypt.hashpw(password, BCrypt.gensalt(4));
+
+        assertArrayEquals("rahasia".getBytes(StandardCharsets.UTF_8), password);
+    }
+}
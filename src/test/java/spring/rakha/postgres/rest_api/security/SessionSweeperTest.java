@@ -0,0 +1,108 @@
+package spring.rakha.postgres.rest_api.security;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import spring.rakha.postgres.rest_api.entity.Contact;
+import spring.rakha.postgres.rest_api.entity.User;
+import spring.rakha.postgres.rest_api.repository.AddressRepository;
+import spring.rakha.postgres.rest_api.repository.ContactRepository;
+import spring.rakha.postgres.rest_api.repository.UserRepository;
+import spring.rakha.postgres.rest_api.repository.UserSessionRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "app.session-sweeper.interval=3600000",
+        "app.session-sweeper.batch-size=10",
+        "app.session-sweeper.max-batches=2"
+})
+class SessionSweeperTest {
+
+    @Autowired
+    private SessionSweeper sessionSweeper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSessionRepository userSessionRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        addressRepository.deleteAll();
+        contactRepository.deleteAll();
+        userRepository.deleteAll();
+
+        user = new User();
+        user.setUsername("test");
+        user.setPassword("test");
+        user.setName("Test");
+        userRepository.save(user);
+
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update("""
+                insert into sessions (user_id, token_hash, expired_at)
+                select ?, sha256(convert_to('expired-' || i, 'UTF8')), ? from generate_series(1, 25) i
+                """, user.getId(), now - 1000);
+        jdbcTemplate.update("""
+                insert into sessions (user_id, token_hash, expired_at)
+                select ?, sha256(convert_to('live-' || i, 'UTF8')), ? from generate_series(1, 5) i
+                """, user.getId(), now + 10000000L);
+    }
+
+    @Test
+    void sweepInBoundedBatches() {
+        DistributionSummary swept = meterRegistry.get("session.sweeper.swept").summary();
+        long sweeps = swept.count();
+        double rows = swept.totalAmount();
+
+        // two batches of ten per sweep, the remaining five wait for the next one
+        sessionSweeper.sweep();
+        assertEquals(10, userSessionRepository.count());
+
+        sessionSweeper.sweep();
+        assertEquals(5, userSessionRepository.count());
+
+        assertEquals(sweeps + 2, swept.count());
+        assertEquals(rows + 25, swept.totalAmount());
+    }
+
+    @Test
+    void sweepKeepsSecondLevelCache() {
+        Contact contact = new Contact();
+        contact.setFirstName("Cached");
+        contact.setUser(user);
+        contactRepository.save(contact);
+
+        entityManagerFactory.getCache().evictAll();
+        contactRepository.findById(contact.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Contact.class, contact.getId()));
+
+        sessionSweeper.sweep();
+        assertTrue(entityManagerFactory.getCache().contains(Contact.class, contact.getId()));
+    }
+}